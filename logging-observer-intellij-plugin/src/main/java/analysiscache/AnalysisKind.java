@@ -0,0 +1,128 @@
+package analysiscache;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethodCallExpression;
+import exceptionloggingmetrics.ExceptionLoggingMetrics;
+import loggingcomponents.LoggingComponents;
+import scanengine.JavaFileFacts;
+import scanengine.LoggingStatementRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Analyses whose per-file results are cached by {@link FileAnalysisCache}. Only the columns depending on the file
+ * alone are cached; the columns depending on the code of other files (e.g., the usages of the containing method)
+ * are computed for each export, so they are never stale.
+ */
+public enum AnalysisKind {
+    LOGGING_COMPONENTS(JavaFileFacts::getLoggingStatements,
+            log -> new LoggingComponents(log).getLogComponentColumns(),
+            () -> false, (log, columns) -> columns,
+            (project, files, indicator) -> {},
+            LoggingComponents.SEPARATOR),
+    EXCEPTION_LOGGING_METRICS(JavaFileFacts::getLoggingStatementsInCatchSections,
+            log -> new ExceptionLoggingMetrics(log).getFileMetricColumns(),
+            ExceptionLoggingMetrics::hasMetricsDependingOnOtherFiles, ExceptionLoggingMetrics::getExportColumns,
+            ExceptionLoggingMetrics::prepareAnalysis,
+            ",");
+
+    /**
+     * Work done once for all the files of an export before the columns depending on other files are computed
+     * statement by statement (e.g., batched project-wide searches)
+     */
+    public interface BatchPreparation {
+        void prepare(Project project, List<PsiJavaFile> files, ProgressIndicator indicator);
+    }
+
+    private final Function<JavaFileFacts, List<PsiMethodCallExpression>> statementsFinder;
+    private final Function<PsiMethodCallExpression, String[]> columnsComputer;
+    private final BooleanSupplier hasExportColumns;
+    // the full row of a logging statement from its cached columns
+    private final BiFunction<PsiMethodCallExpression, String[], String[]> exportColumnsComputer;
+    private final BatchPreparation batchPreparation;
+    private final String separator;
+
+    AnalysisKind(Function<JavaFileFacts, List<PsiMethodCallExpression>> statementsFinder,
+                 Function<PsiMethodCallExpression, String[]> columnsComputer,
+                 BooleanSupplier hasExportColumns,
+                 BiFunction<PsiMethodCallExpression, String[], String[]> exportColumnsComputer,
+                 BatchPreparation batchPreparation, String separator) {
+        this.statementsFinder = statementsFinder;
+        this.columnsComputer = columnsComputer;
+        this.hasExportColumns = hasExportColumns;
+        this.exportColumnsComputer = exportColumnsComputer;
+        this.batchPreparation = batchPreparation;
+        this.separator = separator;
+    }
+
+    /**
+     * Whether the rows have columns depending on other files, computed for each export
+     */
+    public boolean hasExportColumns() {
+        return hasExportColumns.getAsBoolean();
+    }
+
+    /**
+     * Prepare the computation of the columns depending on other files for the files of an export.
+     * Must be called from a background thread, outside of a read action.
+     */
+    public void prepareExport(Project project, List<PsiJavaFile> files, ProgressIndicator indicator) {
+        if (!files.isEmpty() && hasExportColumns()) {
+            batchPreparation.prepare(project, files, indicator);
+        }
+    }
+
+    /**
+     * Analyze the logging statements of a file, one record (holding the columns of the analysis row) per logging
+     * statement in the order of their offsets
+     */
+    public List<LoggingStatementRecord> computeRecords(PsiJavaFile file) {
+        List<LoggingStatementRecord> records = new ArrayList<>();
+        for (PsiMethodCallExpression log : statementsFinder.apply(JavaFileFacts.of(file))) {
+            records.add(LoggingStatementRecord.of(log, columnsComputer.apply(log)));
+        }
+        return records;
+    }
+
+    /**
+     * The records of a file with all their columns, the columns depending on other files computed now.
+     * The records must be up to date with the file. Must be called in a read action.
+     */
+    public List<LoggingStatementRecord> toExportRecords(PsiJavaFile file, List<LoggingStatementRecord> records) {
+        if (records.isEmpty() || !hasExportColumns()) {
+            return records;
+        }
+        Map<Integer, PsiMethodCallExpression> statementsPerOffset = new HashMap<>();
+        for (PsiMethodCallExpression log : statementsFinder.apply(JavaFileFacts.of(file))) {
+            statementsPerOffset.put(log.getTextRange().getStartOffset(), log);
+        }
+        List<LoggingStatementRecord> exportRecords = new ArrayList<>(records.size());
+        for (LoggingStatementRecord record : records) {
+            PsiMethodCallExpression log = statementsPerOffset.get(record.getStartOffset());
+            if (log == null || record.getColumns() == null) {
+                exportRecords.add(record); // not analyzed
+                continue;
+            }
+            exportRecords.add(new LoggingStatementRecord(record.getFile(), record.getStartOffset(),
+                    record.getEndOffset(), record.getLevel(), record.getTemplateHash(),
+                    exportColumnsComputer.apply(log, record.getColumns())));
+        }
+        return exportRecords;
+    }
+
+    /**
+     * The analysis row of a record of this kind, null if its logging statement has not been analyzed
+     */
+    public String getRow(LoggingStatementRecord record) {
+        String[] columns = record.getColumns();
+        return columns == null ? null : String.join(separator, columns);
+    }
+}
@@ -0,0 +1,388 @@
+package analysiscache;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.*;
+import com.intellij.util.ThrowableConsumer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import loggingcomponents.ConstantFieldValues;
+import org.jetbrains.annotations.NotNull;
+import scanengine.LoggingStatementRecord;
+import scanengine.ProjectScanner;
+import settings.LoggingObserverSettings;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Per-file cache of the analysis results (the analyzed logging statement records of {@link AnalysisKind}),
+ * keyed by the modification stamp of the file. The records are kept in the {@link PersistentAnalysisStore},
+ * which also keeps them across IDE sessions, and only the stamps and content hashes of the analyzed files are
+ * held in memory, so the memory use does not grow with the number of logging statements.
+ * Files are marked dirty on PSI and VFS changes and the cached analyses of the dirty files are recomputed
+ * in the background, without any project-wide search, so re-running an action after an edit only analyzes
+ * the edited files.
+ * The log strings folding constant fields of other files are refreshed when those files change after the file
+ * was analyzed in the session, but not when the records come from the on-disk store. The columns depending on
+ * the code of other files (e.g., the usages of the containing method) are not cached, they are computed again
+ * for each export by {@link #processRecords}.
+ */
+@Service(Service.Level.PROJECT)
+public final class FileAnalysisCache implements Disposable {
+    private static final Logger logger = Logger.getInstance(FileAnalysisCache.class);
+
+    private final Project project;
+    private final Map<VirtualFile, Map<AnalysisKind, FileRecords>> recordsPerFile = new ConcurrentHashMap<>();
+    private final Set<VirtualFile> dirtyFiles = ConcurrentHashMap.newKeySet();
+    // file defining constant fields -> the analyzed files folding them in their log strings
+    private final Map<VirtualFile, Set<VirtualFile>> dependentFiles = new ConcurrentHashMap<>();
+
+    public FileAnalysisCache(Project project) {
+        this.project = project;
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+            @Override
+            public void childAdded(@NotNull PsiTreeChangeEvent event) { psiFileChanged(event.getFile()); }
+
+            @Override
+            public void childRemoved(@NotNull PsiTreeChangeEvent event) { psiFileChanged(event.getFile()); }
+
+            @Override
+            public void childReplaced(@NotNull PsiTreeChangeEvent event) { psiFileChanged(event.getFile()); }
+
+            @Override
+            public void childMoved(@NotNull PsiTreeChangeEvent event) { psiFileChanged(event.getFile()); }
+
+            @Override
+            public void childrenChanged(@NotNull PsiTreeChangeEvent event) { psiFileChanged(event.getFile()); }
+        }, this);
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends @NotNull VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    VirtualFile file = event.getFile();
+                    if (file == null) continue;
+                    if (event instanceof VFileDeleteEvent) {
+                        markDependentsDirty(file);
+                        recordsPerFile.remove(file);
+                        dirtyFiles.remove(file);
+                        dependentFiles.remove(file);
+                        PersistentAnalysisStore.getInstance(project).removeFile(file);
+                    } else if (event instanceof VFileContentChangeEvent) {
+                        markDirty(file);
+                    }
+                }
+                scheduleRecomputation();
+            }
+        });
+    }
+
+    public static FileAnalysisCache getInstance(Project project) {
+        return project.getService(FileAnalysisCache.class);
+    }
+
+    /**
+     * Pass the analyzed records of the files containing the given logging statements to the consumer,
+     * file by file in the order of the statements. Only the files modified since they were analyzed
+     * are analyzed again, in parallel. The consumer is called from the worker threads, one record at a time.
+     * Must be called from a background thread.
+     */
+    public void processRecords(List<LoggingStatementRecord> loggingStatements, AnalysisKind kind,
+                               ProgressIndicator indicator,
+                               ThrowableConsumer<LoggingStatementRecord, IOException> recordConsumer)
+            throws IOException {
+        List<VirtualFile> files = loggingStatements.stream()
+                .map(LoggingStatementRecord::getFile)
+                .distinct()
+                .collect(Collectors.toList());
+        PersistentAnalysisStore.getInstance(project).awaitOpen(indicator);
+
+        // the columns depending on other files are computed for all the files, cached or not, after
+        // a batch preparation
+        if (kind.hasExportColumns()) {
+            List<PsiJavaFile> filesToExport = new ArrayList<>();
+            for (VirtualFile file : files) {
+                indicator.checkCanceled();
+                PsiFile psiFile = ProjectScanner.computeInReadAction(project,
+                        () -> file.isValid() ? PsiManager.getInstance(project).findFile(file) : null);
+                if (psiFile instanceof PsiJavaFile) {
+                    filesToExport.add((PsiJavaFile) psiFile);
+                }
+            }
+            kind.prepareExport(project, filesToExport, indicator);
+        }
+
+        // the files are analyzed in parallel and their records are passed to the consumer in the order of the files
+        AtomicInteger analyzedFiles = new AtomicInteger();
+        AtomicInteger processedFiles = new AtomicInteger();
+        AtomicLong analysisTime = new AtomicLong();
+        AtomicReference<IOException> consumerException = new AtomicReference<>();
+        OrderedRecordEmitter emitter = new OrderedRecordEmitter(files.size(), recordConsumer);
+        long startTime = System.nanoTime();
+
+        indicator.setIndeterminate(false);
+        indicator.setFraction(0);
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(IntStream.range(0, files.size()).boxed()
+                .collect(Collectors.toList()), indicator, i -> {
+            VirtualFile file = files.get(i);
+            long fileStartTime = System.nanoTime();
+            List<LoggingStatementRecord> fileRecords = ProjectScanner.computeInReadAction(project, () -> {
+                PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+                if (!(psiFile instanceof PsiJavaFile)) {
+                    return Collections.<LoggingStatementRecord>emptyList();
+                }
+                if (!isUpToDate((PsiJavaFile) psiFile, kind)) {
+                    analyzedFiles.incrementAndGet();
+                }
+                return kind.toExportRecords((PsiJavaFile) psiFile, getRecords((PsiJavaFile) psiFile, kind));
+            });
+            analysisTime.addAndGet(System.nanoTime() - fileStartTime);
+
+            try {
+                emitter.fileDone(i, fileRecords);
+            } catch (IOException e) {
+                consumerException.compareAndSet(null, e);
+                return false; // stop analyzing, the results cannot be written
+            }
+            indicator.setFraction((double) processedFiles.incrementAndGet() / files.size());
+            return true;
+        });
+        if (consumerException.get() != null) {
+            throw consumerException.get();
+        }
+
+        long elapsedTime = Math.max(System.nanoTime() - startTime, 1);
+        logger.info("Refreshed " + analyzedFiles.get() + " of " + files.size() +
+                " files from the on-disk store or by analysis, the others were up to date");
+        logger.info(String.format("Processed the records of %d files in %d ms using %d threads " +
+                        "(%d ms of per-file work, speedup %.2f)", files.size(), elapsedTime / 1_000_000,
+                ForkJoinPool.getCommonPoolParallelism(), analysisTime.get() / 1_000_000,
+                (double) analysisTime.get() / elapsedTime));
+        PersistentAnalysisStore.getInstance(project).save();
+    }
+
+    /**
+     * The analyzed records of the logging statements of a file, in the order of their offsets, without the
+     * columns depending on other files (see {@link AnalysisKind#toExportRecords}). Must be called in a read action.
+     */
+    public List<LoggingStatementRecord> getRecords(PsiJavaFile psiFile, AnalysisKind kind) {
+        VirtualFile file = psiFile.getVirtualFile();
+        if (file == null) {
+            return kind.computeRecords(psiFile); // not a physical file, nothing to cache
+        }
+
+        Map<AnalysisKind, FileRecords> recordsPerKind =
+                recordsPerFile.computeIfAbsent(file, f -> new ConcurrentHashMap<>());
+        FileRecords cachedRecords = recordsPerKind.get(kind);
+        long modificationStamp = psiFile.getModificationStamp();
+        long settingsModificationCount = LoggingObserverSettings.getInstance().getModificationCount();
+        PersistentAnalysisStore store = PersistentAnalysisStore.getInstance(project);
+        if (cachedRecords != null && cachedRecords.isUpToDate(modificationStamp, settingsModificationCount)) {
+            List<LoggingStatementRecord> records = store.getRecords(file, kind, cachedRecords.contentHash);
+            if (records != null) {
+                return records;
+            }
+            // the records could not be stored, analyze the file again
+        }
+
+        // the file may have been analyzed with the same content in a previous session
+        byte[] contentHash = PersistentAnalysisStore.getContentHash(psiFile);
+        List<LoggingStatementRecord> records = store.getRecords(file, kind, contentHash);
+        if (records == null) {
+            Set<VirtualFile> definingFiles = new HashSet<>();
+            records = ConstantFieldValues.computeCollectingDefiningFiles(() -> kind.computeRecords(psiFile),
+                    definingFiles);
+            for (VirtualFile definingFile : definingFiles) {
+                if (!definingFile.equals(file)) {
+                    dependentFiles.computeIfAbsent(definingFile, f -> ConcurrentHashMap.newKeySet()).add(file);
+                }
+            }
+            store.putRecords(file, kind, contentHash, records);
+        }
+        recordsPerKind.put(kind, new FileRecords(modificationStamp, settingsModificationCount, contentHash));
+        return records;
+    }
+
+    @Override
+    public void dispose() {
+        recordsPerFile.clear();
+        dirtyFiles.clear();
+        dependentFiles.clear();
+    }
+
+    private boolean isUpToDate(PsiJavaFile psiFile, AnalysisKind kind) {
+        Map<AnalysisKind, FileRecords> recordsPerKind = recordsPerFile.get(psiFile.getVirtualFile());
+        FileRecords cachedRecords = recordsPerKind == null ? null : recordsPerKind.get(kind);
+        return cachedRecords != null && cachedRecords.isUpToDate(psiFile.getModificationStamp(),
+                LoggingObserverSettings.getInstance().getModificationCount());
+    }
+
+    private void psiFileChanged(PsiFile psiFile) {
+        if (psiFile == null || !psiFile.isPhysical() || psiFile.getVirtualFile() == null) {
+            return;
+        }
+        markDirty(psiFile.getVirtualFile());
+        scheduleRecomputation();
+    }
+
+    private void markDirty(VirtualFile file) {
+        // only the files analyzed before are kept up to date
+        if (recordsPerFile.containsKey(file)) {
+            dirtyFiles.add(file);
+        }
+        markDependentsDirty(file);
+    }
+
+    /**
+     * Mark dirty the files folding constant fields of a changed file. Their content has not changed, so their
+     * records are marked stale and removed from the on-disk store to be analyzed again.
+     */
+    private void markDependentsDirty(VirtualFile file) {
+        Set<VirtualFile> dependents = dependentFiles.remove(file);
+        if (dependents == null) {
+            return;
+        }
+        for (VirtualFile dependent : dependents) {
+            Map<AnalysisKind, FileRecords> recordsPerKind = recordsPerFile.get(dependent);
+            if (recordsPerKind == null) continue;
+            recordsPerKind.values().forEach(FileRecords::markStale);
+            PersistentAnalysisStore.getInstance(project).removeFile(dependent);
+            dirtyFiles.add(dependent);
+        }
+    }
+
+    private void scheduleRecomputation() {
+        if (dirtyFiles.isEmpty()) {
+            return;
+        }
+        // consecutive changes (e.g., typing) are coalesced into one recomputation; the dirty files are collected
+        // in a read action and then analyzed again file by file. Only the cached columns are recomputed, the
+        // columns depending on other files (e.g., the usage counts of the methods) wait for the next export
+        ReadAction.nonBlocking(this::collectDirtyFiles)
+                .inSmartMode(project)
+                .coalesceBy(this)
+                .expireWith(this)
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onSuccess(filesPerKind -> AppExecutorUtil.getAppExecutorService().execute(
+                        () -> recomputeDirtyFiles(filesPerKind)));
+    }
+
+    /**
+     * The dirty files to analyze again, per analysis kind cached for them
+     */
+    private Map<AnalysisKind, List<PsiJavaFile>> collectDirtyFiles() {
+        Map<AnalysisKind, List<PsiJavaFile>> filesPerKind = new EnumMap<>(AnalysisKind.class);
+        for (VirtualFile file : new ArrayList<>(dirtyFiles)) {
+            ProgressManager.checkCanceled();
+
+            Map<AnalysisKind, FileRecords> recordsPerKind = recordsPerFile.get(file);
+            PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+            if (recordsPerKind == null || !(psiFile instanceof PsiJavaFile)) {
+                recordsPerFile.remove(file);
+                dirtyFiles.remove(file);
+                continue;
+            }
+            for (AnalysisKind kind : recordsPerKind.keySet()) {
+                filesPerKind.computeIfAbsent(kind, k -> new ArrayList<>()).add((PsiJavaFile) psiFile);
+            }
+        }
+        return filesPerKind;
+    }
+
+    private void recomputeDirtyFiles(Map<AnalysisKind, List<PsiJavaFile>> filesPerKind) {
+        if (project.isDisposed()) {
+            return;
+        }
+        // a file changed again from now on is marked dirty again and recomputed by the next recomputation
+        filesPerKind.values().forEach(files -> files.forEach(f -> dirtyFiles.remove(f.getVirtualFile())));
+
+        ProgressIndicator indicator = new EmptyProgressIndicator();
+        try {
+            ProgressManager.getInstance().runProcess(() -> {
+                for (Map.Entry<AnalysisKind, List<PsiJavaFile>> entry : filesPerKind.entrySet()) {
+                    AnalysisKind kind = entry.getKey();
+                    for (PsiJavaFile psiFile : entry.getValue()) {
+                        ProjectScanner.computeInReadAction(project,
+                                () -> psiFile.isValid() ? getRecords(psiFile, kind) : null);
+                    }
+                }
+            }, indicator);
+        } catch (ProcessCanceledException e) {
+            // the project is closing, the files are analyzed again on the next run
+        }
+    }
+
+    /**
+     * Passes the records of the files to the consumer in the order of the files while the files are processed
+     * in any order: the records of a file are held until the records of all the files before it are passed.
+     */
+    private static class OrderedRecordEmitter {
+        private final List<List<LoggingStatementRecord>> pendingRecords;
+        private final ThrowableConsumer<LoggingStatementRecord, IOException> recordConsumer;
+        private int nextFile;
+
+        OrderedRecordEmitter(int numFiles, ThrowableConsumer<LoggingStatementRecord, IOException> recordConsumer) {
+            this.pendingRecords = new ArrayList<>(Collections.nCopies(numFiles, null));
+            this.recordConsumer = recordConsumer;
+        }
+
+        synchronized void fileDone(int fileIndex, List<LoggingStatementRecord> records) throws IOException {
+            pendingRecords.set(fileIndex, records);
+            while (nextFile < pendingRecords.size() && pendingRecords.get(nextFile) != null) {
+                for (LoggingStatementRecord record : pendingRecords.get(nextFile)) {
+                    recordConsumer.consume(record);
+                }
+                pendingRecords.set(nextFile++, null); // not retained once passed
+            }
+        }
+    }
+
+    /**
+     * The version of a file whose records are in the store
+     */
+    private static class FileRecords {
+        private final long modificationStamp;
+        private final long settingsModificationCount;
+        // the key of the records in the store
+        private final byte[] contentHash;
+        // a file the records depend on has changed
+        private volatile boolean stale = false;
+
+        FileRecords(long modificationStamp, long settingsModificationCount, byte[] contentHash) {
+            this.modificationStamp = modificationStamp;
+            this.settingsModificationCount = settingsModificationCount;
+            this.contentHash = contentHash;
+        }
+
+        void markStale() {
+            this.stale = true;
+        }
+
+        boolean isUpToDate(long modificationStamp, long settingsModificationCount) {
+            return !this.stale && this.modificationStamp == modificationStamp
+                    && this.settingsModificationCount == settingsModificationCount;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package analysiscache;
+
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.DigestUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.PersistentHashMap;
+import org.jetbrains.annotations.NotNull;
+import scanengine.LoggingStatementRecord;
+import settings.LoggingObserverSettings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-disk store of the per-file analysis records of a project, kept under the IDE system directory
+ * so that the analysis results survive IDE restarts.
+ * Records are keyed by a hash of the file content (and of the logger settings) and the whole store is
+ * discarded when the plugin version changes. Entries of deleted files are evicted when the store is opened.
+ * The store is a persistent map opened in the background: the records are read and written one file at a time,
+ * and a lookup made before the store is open is a miss instead of waiting for it.
+ */
+@Service(Service.Level.PROJECT)
+public final class PersistentAnalysisStore implements Disposable {
+    private static final Logger logger = Logger.getInstance(PersistentAnalysisStore.class);
+
+    private static final String PLUGIN_ID = "org.mooselab.logging-observer";
+    private static final int FORMAT_VERSION = 8;
+
+    private final Project project;
+    private final Path storeFile;
+    private final Path versionFile;
+    private final CountDownLatch opened = new CountDownLatch(1);
+    // "<analysis kind>:<file url>" -> stored records, null until opened and after disposal
+    private volatile PersistentHashMap<String, StoredRecords> recordsPerFile;
+    private boolean disposed = false;
+
+    public PersistentAnalysisStore(Project project) {
+        this.project = project;
+        Path storeDir = PathManager.getSystemDir().resolve("logging-observer").resolve(project.getLocationHash());
+        this.storeFile = storeDir.resolve("analysis");
+        this.versionFile = storeDir.resolve("analysis.version");
+        AppExecutorUtil.getAppExecutorService().execute(this::open);
+    }
+
+    public static PersistentAnalysisStore getInstance(Project project) {
+        return project.getService(PersistentAnalysisStore.class);
+    }
+
+    /**
+     * Hash of the current content of a file (including unsaved changes) and of the settings the analysis
+     * depends on. The constant fields of other files folded in the log strings are not part of the hash,
+     * so the stored log strings may be stale if those files changed. Must be called in a read action.
+     */
+    public static byte[] getContentHash(PsiFile psiFile) {
+        MessageDigest digest = DigestUtil.sha1();
+        digest.update(psiFile.getViewProvider().getContents().toString().getBytes(StandardCharsets.UTF_8));
+        for (String loggerClass : LoggingObserverSettings.getInstance().getLoggerClasses()) {
+            digest.update(loggerClass.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String disabledMetric : LoggingObserverSettings.getInstance().getDisabledMetrics()) {
+            digest.update(("-" + disabledMetric).getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update(("depth=" + LoggingObserverSettings.getInstance().getExceptionOriginDepth())
+                .getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    /**
+     * Wait until the store is open, so that the lookups of a large export are not missed while it opens.
+     * Must be called from a background thread, outside of a read action.
+     */
+    public void awaitOpen(ProgressIndicator indicator) {
+        try {
+            while (!opened.await(50, TimeUnit.MILLISECONDS)) {
+                indicator.checkCanceled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The stored records of a file, or null if the file has not been analyzed with this content
+     * or the store is not open yet
+     */
+    public List<LoggingStatementRecord> getRecords(VirtualFile file, AnalysisKind kind, byte[] contentHash) {
+        PersistentHashMap<String, StoredRecords> map = recordsPerFile;
+        if (map == null) {
+            return null;
+        }
+        try {
+            StoredRecords storedRecords = map.get(getKey(file, kind));
+            if (storedRecords == null || !Arrays.equals(storedRecords.contentHash, contentHash)) {
+                return null;
+            }
+            return storedRecords.toRecords(file);
+        } catch (IOException e) {
+            logger.warn("Failed to read the analysis results of " + file.getUrl(), e);
+            return null;
+        }
+    }
+
+    public void putRecords(VirtualFile file, AnalysisKind kind, byte[] contentHash,
+                           List<LoggingStatementRecord> records) {
+        PersistentHashMap<String, StoredRecords> map = recordsPerFile;
+        if (map == null) {
+            return; // analyzed again in the next session
+        }
+        try {
+            map.put(getKey(file, kind), new StoredRecords(contentHash, records));
+        } catch (IOException e) {
+            logger.warn("Failed to store the analysis results of " + file.getUrl(), e);
+        }
+    }
+
+    public void removeFile(VirtualFile file) {
+        PersistentHashMap<String, StoredRecords> map = recordsPerFile;
+        if (map == null) {
+            return; // evicted when the store is opened if deleted, or stored again with its new content
+        }
+        try {
+            for (AnalysisKind kind : AnalysisKind.values()) {
+                map.remove(getKey(file, kind));
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to remove the analysis results of " + file.getUrl(), e);
+        }
+    }
+
+    /**
+     * Flush the records written since the last save to disk
+     */
+    public void save() {
+        PersistentHashMap<String, StoredRecords> map = recordsPerFile;
+        if (map != null && map.isDirty()) {
+            map.force();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        PersistentHashMap<String, StoredRecords> map;
+        synchronized (this) {
+            disposed = true;
+            map = recordsPerFile;
+            recordsPerFile = null;
+        }
+        if (map != null) {
+            close(map);
+        }
+    }
+
+    private void open() {
+        PersistentHashMap<String, StoredRecords> map = null;
+        try {
+            if (!getVersion().equals(readVersion())) {
+                logger.info("Discarding the analysis results of another plugin version in " + storeFile);
+                IOUtil.deleteAllFilesStartingWith(storeFile.toFile());
+                Files.deleteIfExists(storeFile.resolveSibling("analysis.dat")); // written by the older versions
+                Files.createDirectories(versionFile.getParent());
+                Files.write(versionFile, getVersion().getBytes(StandardCharsets.UTF_8));
+            }
+            map = createMap();
+            evictDeletedFiles(map);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to open the analysis results in " + storeFile + ", starting from scratch", e);
+            if (map != null) {
+                close(map);
+                map = null;
+            }
+            IOUtil.deleteAllFilesStartingWith(storeFile.toFile());
+            try {
+                map = createMap();
+            } catch (IOException e2) {
+                logger.warn("Failed to create the analysis results store " + storeFile, e2);
+            }
+        }
+
+        synchronized (this) {
+            if (!disposed) {
+                recordsPerFile = map;
+                map = null;
+            }
+        }
+        if (map != null) {
+            close(map); // the project was closed while the store was opening
+        }
+        opened.countDown();
+    }
+
+    private PersistentHashMap<String, StoredRecords> createMap() throws IOException {
+        return new PersistentHashMap<>(storeFile, EnumeratorStringDescriptor.INSTANCE, new StoredRecordsExternalizer());
+    }
+
+    private void evictDeletedFiles(PersistentHashMap<String, StoredRecords> map) throws IOException {
+        List<String> keys = new ArrayList<>();
+        map.processKeysWithExistingMapping(keys::add);
+        int evictedFiles = 0;
+        for (String key : keys) {
+            String url = key.substring(key.indexOf(':') + 1);
+            if (VirtualFileManager.getInstance().findFileByUrl(url) == null) {
+                map.remove(key);
+                evictedFiles++;
+            }
+        }
+        logger.info("Opened the analysis results of " + keys.size() + " files and analyses of project " +
+                project.getName() + ", evicted " + evictedFiles + " of deleted files");
+    }
+
+    private void close(PersistentHashMap<String, StoredRecords> map) {
+        try {
+            map.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the analysis results store " + storeFile, e);
+        }
+    }
+
+    private String readVersion() throws IOException {
+        return Files.exists(versionFile) ? new String(Files.readAllBytes(versionFile), StandardCharsets.UTF_8) : "";
+    }
+
+    private static String getKey(VirtualFile file, AnalysisKind kind) {
+        return kind.name() + ":" + file.getUrl();
+    }
+
+    private static String getVersion() {
+        IdeaPluginDescriptor plugin = PluginManagerCore.getPlugin(PluginId.getId(PLUGIN_ID));
+        return FORMAT_VERSION + "/" + (plugin == null ? "" : plugin.getVersion());
+    }
+
+    /**
+     * The records of a file and analysis, kept serialized so that they only take memory while they are read
+     */
+    private static class StoredRecords {
+        private final byte[] contentHash;
+        private final byte[] records;
+
+        StoredRecords(byte[] contentHash, byte[] records) {
+            this.contentHash = contentHash;
+            this.records = records;
+        }
+
+        StoredRecords(byte[] contentHash, List<LoggingStatementRecord> records) throws IOException {
+            this(contentHash, writeRecords(records));
+        }
+
+        private static byte[] writeRecords(List<LoggingStatementRecord> records) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                DataInputOutputUtil.writeINT(out, records.size());
+                for (LoggingStatementRecord record : records) {
+                    // the file of the records is the file of the entry
+                    DataInputOutputUtil.writeINT(out, record.getStartOffset());
+                    DataInputOutputUtil.writeINT(out, record.getEndOffset());
+                    IOUtil.writeString(record.getLevel(), out);
+                    out.writeInt(record.getTemplateHash());
+                    // a record found but not analyzed has no row, which must not come back as "null"
+                    String[] columns = record.getColumns();
+                    out.writeBoolean(columns != null);
+                    if (columns != null) {
+                        DataInputOutputUtil.writeINT(out, columns.length);
+                        for (String column : columns) {
+                            IOUtil.writeString(column, out);
+                        }
+                    }
+                }
+            }
+            return bytes.toByteArray();
+        }
+
+        List<LoggingStatementRecord> toRecords(VirtualFile file) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(records));
+            int numRecords = DataInputOutputUtil.readINT(in);
+            List<LoggingStatementRecord> fileRecords = new ArrayList<>(numRecords);
+            for (int i = 0; i < numRecords; i++) {
+                int startOffset = DataInputOutputUtil.readINT(in);
+                int endOffset = DataInputOutputUtil.readINT(in);
+                String level = IOUtil.readString(in);
+                int templateHash = in.readInt();
+                String[] columns = null;
+                if (in.readBoolean()) {
+                    columns = new String[DataInputOutputUtil.readINT(in)];
+                    for (int j = 0; j < columns.length; j++) {
+                        columns[j] = IOUtil.readString(in);
+                    }
+                }
+                fileRecords.add(new LoggingStatementRecord(file, startOffset, endOffset, level, templateHash, columns));
+            }
+            return Collections.unmodifiableList(fileRecords);
+        }
+    }
+
+    private static class StoredRecordsExternalizer implements DataExternalizer<StoredRecords> {
+        @Override
+        public void save(@NotNull DataOutput out, StoredRecords value) throws IOException {
+            DataInputOutputUtil.writeINT(out, value.contentHash.length);
+            out.write(value.contentHash);
+            DataInputOutputUtil.writeINT(out, value.records.length);
+            out.write(value.records);
+        }
+
+        @Override
+        public StoredRecords read(@NotNull DataInput in) throws IOException {
+            byte[] contentHash = new byte[DataInputOutputUtil.readINT(in)];
+            in.readFully(contentHash);
+            byte[] records = new byte[DataInputOutputUtil.readINT(in)];
+            in.readFully(records);
+            return new StoredRecords(contentHash, records);
+        }
+    }
+}
@@ -2,16 +2,14 @@ package catchmetrics;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiCatchSection;
-import com.intellij.psi.PsiMethodCallExpression;
 import com.intellij.psi.PsiType;
-import com.intellij.psi.util.PsiTreeUtil;
 import common.Locators;
 import exceptionloggingmetrics.ExceptionLoggingMetrics;
 import loggingcomponents.LoggingComponents;
+import scanengine.JavaFileFacts;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 public class CatchSectionLoggingInfo {
     private PsiCatchSection catchSection;
@@ -30,19 +28,15 @@ public class CatchSectionLoggingInfo {
     }
 
     private void fetchLoggingInfo() {
-        // Pattern for matching logging statements
-        Pattern pLog = Pattern.compile(".*log.*\\.(trace|debug|info|warn|error|fatal)", Pattern.CASE_INSENSITIVE);
-
-        PsiTreeUtil.findChildrenOfType(catchSection, PsiMethodCallExpression.class).forEach(m -> {
-            if (pLog.matcher(m.getMethodExpression().getText()).matches()) {
-                this.isLogged = true;
-                this.logNum += 1;
-                //loggingStatements.add(m);
-                LoggingComponents logComponents = new LoggingComponents(m);
-                if (logComponents.getIsStackTraceLogged()) {
-                    this.isStackTraceLogged = true;
-                    this.stackTraceNum += 1;
-                }
+        // logging statements in the catch section, collected by the single pass over the containing file
+        JavaFileFacts.of(catchSection.getContainingFile()).getLoggingStatementsInCatchSection(catchSection).forEach(m -> {
+            this.isLogged = true;
+            this.logNum += 1;
+            //loggingStatements.add(m);
+            LoggingComponents logComponents = new LoggingComponents(m);
+            if (logComponents.getIsStackTraceLogged()) {
+                this.isStackTraceLogged = true;
+                this.stackTraceNum += 1;
             }
         });
     }
@@ -0,0 +1,96 @@
+package common;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Start offsets of the lines of a file, answering offset-to-line queries with a binary search instead of
+ * scanning the file text for every element.
+ * The table is taken from the document of the file when it is loaded and committed, otherwise it is computed
+ * from the file contents; it is cached on the file until the file changes.
+ */
+public class LineOffsetTable {
+    private final int[] lineStartOffsets;
+    private final int textLength;
+
+    private LineOffsetTable(int[] lineStartOffsets, int textLength) {
+        this.lineStartOffsets = lineStartOffsets;
+        this.textLength = textLength;
+    }
+
+    public static LineOffsetTable of(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file,
+                () -> CachedValueProvider.Result.create(build(file), file));
+    }
+
+    public static LineOffsetTable of(@NotNull PsiElement element) {
+        return of(element.getContainingFile());
+    }
+
+    /**
+     * Zero-based number of the line containing the offset
+     */
+    public int getLineNumber(int offset) {
+        if (offset <= 0) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(lineStartOffsets, Math.min(offset, textLength));
+        // either the offset starts a line, or it is inside the line starting before the insertion point
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Number of line breaks in the file
+     */
+    public int getLineBreakCount() {
+        return lineStartOffsets.length - 1;
+    }
+
+    /**
+     * Number of lines strictly between the first and the last line of the range, i.e., the lines of code
+     * of a block without the lines of its braces
+     */
+    public int getInnerLineCount(TextRange range) {
+        int startLine = getLineNumber(range.getStartOffset());
+        int endLine = getLineNumber(Math.max(range.getStartOffset(), range.getEndOffset() - 1));
+        return endLine - startLine - 1;
+    }
+
+    private static LineOffsetTable build(PsiFile file) {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(file.getProject());
+        Document document = documentManager.getCachedDocument(file);
+        if (document != null && documentManager.isCommitted(document)) {
+            int[] lineStartOffsets = new int[Math.max(document.getLineCount(), 1)];
+            for (int line = 1; line < document.getLineCount(); line++) {
+                lineStartOffsets[line] = document.getLineStartOffset(line);
+            }
+            return new LineOffsetTable(lineStartOffsets, document.getTextLength());
+        }
+
+        CharSequence text = file.getViewProvider().getContents();
+        int[] lineStartOffsets = new int[16];
+        int numLines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                i++;
+            }
+            if (c == '\n' || c == '\r') {
+                if (numLines == lineStartOffsets.length) {
+                    lineStartOffsets = Arrays.copyOf(lineStartOffsets, numLines * 2);
+                }
+                lineStartOffsets[numLines++] = i + 1;
+            }
+        }
+        return new LineOffsetTable(ArrayUtil.realloc(lineStartOffsets, numLines), text.length());
+    }
+}
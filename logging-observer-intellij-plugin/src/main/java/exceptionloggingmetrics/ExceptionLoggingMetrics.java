@@ -1,52 +1,52 @@
 package exceptionloggingmetrics;
 
-import com.intellij.openapi.roots.*;
-import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.*;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.ReferencesSearch;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.openapi.project.Project;
 
-import com.intellij.util.Query;
+import exceptionorigin.ExceptionOrigin;
+import exceptionorigin.ExceptionOriginAnalyzer;
+import fanin.FanInCalculator;
 import loggingcomponents.LoggingComponents;
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import scanengine.JavaFileFacts;
+import scanengine.ProjectScanner;
+import typehierarchy.ExceptionTypeHierarchy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import common.LineOffsetTable;
 import common.Locators;
 
 public class ExceptionLoggingMetrics {
     private static final Logger logger = LoggerFactory.getLogger(ExceptionLoggingMetrics.class);
 
     private PsiMethodCallExpression logStmt;
-    String logLevel;
-    String logText;
-    String logBody;
-    private boolean isStackTraceLogged;
+    private final LogStatementContext context;
+    private LoggingComponents logComponents; // extracted on first use
     private List<PsiType> exceptionTypes;
-    private List<PsiMethod> exceptionMethods;
+    private List<PsiMethod> exceptionMethods; // resolved on first use
+    private ExceptionOrigin exceptionOrigin; // resolved with the exception methods, null if not found
     private Project project;
     private PsiCatchSection catchSection;
+    // pairs of metrics computed together
+    private int[] numMethodCallsBeforeAndAfterLogging;
+    private int[] LOCBeforeAndAfterLogging;
 
     public ExceptionLoggingMetrics(PsiMethodCallExpression logStmt) {
         this.logStmt = logStmt;
         this.project = logStmt.getProject();
-        this.exceptionTypes = deriveExceptionTypes(logStmt);
-        this.exceptionMethods = resolveExceptionMethods(logStmt);
-        this.catchSection = PsiTreeUtil.getParentOfType(logStmt, PsiCatchSection.class);
-
-        LoggingComponents logComponents = new LoggingComponents(logStmt);
-        this.logLevel = logComponents.getLogLevel();
-        this.logText = logComponents.getLogStringWithoutVariables();
-        this.logBody = logComponents.getLogBody();
-        this.isStackTraceLogged = logComponents.getIsStackTraceLogged();
+        this.context = new LogStatementContext(logStmt);
+        this.catchSection = context.getCatchSection();
+        this.exceptionTypes = context.getCaughtExceptionTypes();
 
         // debugging
         /*
@@ -67,105 +67,116 @@ public class ExceptionLoggingMetrics {
         */
     }
 
+    /**
+     * Whether some enabled metrics depend on the code of other files, see {@link #getExportColumns}
+     */
+    public static boolean hasMetricsDependingOnOtherFiles() {
+        return LoggingMetricRegistry.getEnabledMetrics().stream().anyMatch(LoggingMetric::dependsOnOtherFiles);
+    }
+
+    /**
+     * Count the usages of the methods containing the logging statements of the exported files in one batch, if
+     * the usage metrics are enabled, instead of searching the usages of each method separately.
+     * Must be called from a background thread, outside of a read action.
+     */
+    public static void prepareAnalysis(Project project, List<PsiJavaFile> files, ProgressIndicator indicator) {
+        Set<String> enabledMetrics = LoggingMetricRegistry.getEnabledMetrics().stream()
+                .map(LoggingMetric::getName)
+                .collect(Collectors.toSet());
+        boolean includeSuperMethods = enabledMetrics.contains("fanIn");
+        if (!includeSuperMethods && !enabledMetrics.contains("methodUsages")) {
+            return;
+        }
+
+        // distinct methods containing logging statements
+        Set<PsiMethod> methods = new LinkedHashSet<>();
+        for (PsiJavaFile file : files) {
+            indicator.checkCanceled();
+            methods.addAll(ProjectScanner.computeInReadAction(project, () -> {
+                Set<PsiMethod> fileMethods = new LinkedHashSet<>();
+                if (!file.isValid()) {
+                    return fileMethods;
+                }
+                for (PsiMethodCallExpression log : JavaFileFacts.of(file).getLoggingStatementsInCatchSections()) {
+                    PsiMethod method = PsiTreeUtil.getParentOfType(log, PsiMethod.class);
+                    if (method != null) {
+                        fileMethods.add(method);
+                    }
+                }
+                return fileMethods;
+            }));
+        }
+
+        FanInCalculator.getInstance(project).computeUsageCounts(methods, includeSuperMethods, indicator);
+    }
+
+    /**
+     * Header of the metrics enabled in the settings
+     */
     public static String getLoggingMetricsHeader() {
         List<String> metricsHeader = new ArrayList<>();
-        // log identification/index
-        metricsHeader.add("catchLocation"); // the location of the containing catch block
-        metricsHeader.add("logLocation"); // the location of the logging statement - fileName:lineNumber
-
-        // response variables
-        metricsHeader.add("logLevel"); // log level of the logging statement
-        metricsHeader.add("logStackTrace"); // if the logging statement logged the stack trace
-
-        //explanatory variables
-        metricsHeader.add("containingPackage");
-        metricsHeader.add("exceptionType"); // exceptions caught by the containing catch block
-        metricsHeader.add("parentExType");
-        metricsHeader.add("grandParentExType");
-        metricsHeader.add("exceptionPackage");
-        metricsHeader.add("exceptionCategory"); // Normal exception, RuntimeException, or Error
-        metricsHeader.add("exceptionSource"); // project, library, or JDK
-        metricsHeader.add("exceptionNum"); // number of exceptions caught by the containing catch block
-        metricsHeader.add("exceptionMethodCall"); // method call that throws the caught exceptions
-        metricsHeader.add("exceptionMethodPackage");
-        metricsHeader.add("exceptionMethodSource"); // project, library, or JDK
-        metricsHeader.add("exceptionMethodNum"); // number of methods that throw the caught exceptions
-        metricsHeader.add("catchInLoop"); // if the containing catch block is in a loop
-        metricsHeader.add("isLogInInnerLoop"); // if the logging statement is in a loop within the containing catch block
-        metricsHeader.add("isLogInInnerBranch"); // if the logging statement is in a branch statement (excluding logging guard) within the containing catch block
-        metricsHeader.add("isLogInInnerTryBlock"); // if the logging statement is in a try block within the containing catch block (i.e., an inner try - finally block without catch block)
-        metricsHeader.add("throwInCatchBlock"); // does the catch block contain throw statements
-        metricsHeader.add("returnInCatchBlock"); // does the catch block contain return statements
-        metricsHeader.add("throwInTryBlock"); // does the try block contain throw statements
-        metricsHeader.add("returnInTryBlock"); // does the try block contain return statements
-        metricsHeader.add("numMethodCallsBeforeLogging"); // number of method calls in the containing catch block before the logging statement
-        metricsHeader.add("numMethodCallsAfterLogging"); // number of method calls in the containing catch block after the logging statement
-        metricsHeader.add("LOCBeforeLogging"); // lines of code in the containing catch block before the logging statement
-        metricsHeader.add("LOCAfterLogging"); // lines of code the containing block after the logging statement
-        metricsHeader.add("numMethodCallsInTryBlock"); // number of method calls in the containing try block
-        metricsHeader.add("LOCInTryBlock"); // LOC in the try block
-        metricsHeader.add("LOCInFile"); // LOC in the file
-        metricsHeader.add("LOCInMethod"); // LOC in the containing method
-        metricsHeader.add("numMethodCallsInMethod"); // number of method calls n the containing method
-        metricsHeader.add("methodUsages"); // number of usages of the containing method
-        //metricsHeader.add("fanIn"); // number of usages of the containing method and its super methods
-
+        for (LoggingMetric metric : LoggingMetricRegistry.getEnabledMetrics()) {
+            metricsHeader.add(metric.getName());
+        }
 
         return String.join(",", metricsHeader);
     }
 
+    /**
+     * Values of the metrics enabled in the settings, the disabled metrics are not computed
+     */
     public String getLoggingMetrics() {
-        List<String> metrics = new ArrayList<>();
+        return String.join(",", getLoggingMetricColumns());
+    }
 
-        // location of the containing catch section
-        metrics.add(Locators.getLocationInFile(this.catchSection));
-
-        // log identification/index
-        String fileLocation = Locators.getLocationInFile(this.logStmt);
-        metrics.add(fileLocation);
-
-        // response variables
-        metrics.add(getLogLevel());
-        metrics.add(String.valueOf(getIsStackTraceLogged()));
-
-        //explanatory variables
-        metrics.add(getContainingPackageName(this.logStmt));
-        metrics.add(getPresentableExceptionType());
-        metrics.add(getParentExceptionType());
-        metrics.add(getGrandParentType());
-        metrics.add(getExceptionPackageName());
-        metrics.add(getPresentableExceptionCategory());
-        metrics.add(getPresentableExceptionSource());
-        metrics.add(String.valueOf(getExceptionTypes().size()));
-        metrics.add(getPresentableExceptionMethod());
-        metrics.add(getExceptionMethodPackageName());
-        metrics.add(getPresentableExceptionMethodSource());
-        metrics.add(String.valueOf(getExceptionMethods().size()));
-        metrics.add(String.valueOf(isCatchBlockWithInLoop()));
-        metrics.add(String.valueOf(isLoggingStatementWithinInnerLoop()));
-        metrics.add(String.valueOf(isLoggingStatementWithinInnerBranch()));
-        metrics.add(String.valueOf(isLoggingStatementWithinInnderTryBlock()));
-        metrics.add(String.valueOf(getNumThrowInCatchBlock() > 0));
-        metrics.add(String.valueOf(getNumReturnInCatchBlock() > 0));
-        metrics.add(String.valueOf(getNumThrowInTryBlock() > 0));
-        metrics.add(String.valueOf(getNumReturnInTryBlock() > 0));
-        int[] numMethodCalls = getNumMethodCallsBeforeAndAfterLogging();
-        metrics.add(String.valueOf(numMethodCalls[0]));
-        metrics.add(String.valueOf(numMethodCalls[1]));
-        int[] LOCs = getLOCBeforeAndAfterLogging();
-        metrics.add(String.valueOf(LOCs[0]));
-        metrics.add(String.valueOf(LOCs[1]));
-        metrics.add(String.valueOf(getNumMethodCallsInTryBlock()));
-        metrics.add(String.valueOf(getTryBlockLOC()));
-        metrics.add(String.valueOf(getFileLOC()));
-        metrics.add(String.valueOf(getMethodLOC()));
-        metrics.add(String.valueOf(getNumMethodCallsInMethod()));
-        metrics.add(String.valueOf(getUsageNumOfContainingMethod()));
-        //metrics.add(String.valueOf(getUsageNumOfContainingMethodAndSuperMethods())); // commented because it takes too much cpu/memory
-
-        return String.join(",",metrics);
+    /**
+     * The enabled metrics, one column each
+     */
+    public String[] getLoggingMetricColumns() {
+        List<LoggingMetric> enabledMetrics = LoggingMetricRegistry.getEnabledMetrics();
+        String[] metrics = new String[enabledMetrics.size()];
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i] = enabledMetrics.get(i).compute(this);
+        }
+        return metrics;
     }
 
+    /**
+     * The enabled metrics that only depend on the file of the logging statement, one column each,
+     * which can be cached with the file
+     */
+    public String[] getFileMetricColumns() {
+        List<String> metrics = new ArrayList<>();
+        for (LoggingMetric metric : LoggingMetricRegistry.getEnabledMetrics()) {
+            if (!metric.dependsOnOtherFiles()) {
+                metrics.add(metric.compute(this));
+            }
+        }
+        return metrics.toArray(new String[0]);
+    }
+
+    /**
+     * The enabled metrics of a logging statement, from the cached columns of {@link #getFileMetricColumns()}
+     * and the metrics depending on other files, computed now. Must be called in a read action.
+     */
+    public static String[] getExportColumns(PsiMethodCallExpression logStmt, String[] fileColumns) {
+        List<LoggingMetric> enabledMetrics = LoggingMetricRegistry.getEnabledMetrics();
+        String[] metrics = new String[enabledMetrics.size()];
+        ExceptionLoggingMetrics metricsOfOtherFiles = null; // created for the first metric needing it
+        int fileColumn = 0;
+        for (int i = 0; i < metrics.length; i++) {
+            LoggingMetric metric = enabledMetrics.get(i);
+            if (!metric.dependsOnOtherFiles()) {
+                metrics[i] = fileColumn < fileColumns.length ? fileColumns[fileColumn++] : "";
+                continue;
+            }
+            if (metricsOfOtherFiles == null) {
+                metricsOfOtherFiles = new ExceptionLoggingMetrics(logStmt);
+            }
+            metrics[i] = metric.compute(metricsOfOtherFiles);
+        }
+        return metrics;
+    }
 
     public static String getLogComponentsHeader() {
         List<String> componentsHeader = new ArrayList<>();
@@ -189,13 +200,42 @@ public class ExceptionLoggingMetrics {
 
 
     public List<PsiType> getExceptionTypes() {return this.exceptionTypes;}
-    public List<PsiMethod> getExceptionMethods() {return this.exceptionMethods;}
 
-    public String getLogLevel() { return this.logLevel; }
-    public String getLogText() { return this.logText; }
-    public String getLogBody() { return this.logBody; }
+    public List<PsiMethod> getExceptionMethods() {
+        if (this.exceptionMethods == null) {
+            this.exceptionMethods = resolveExceptionMethods();
+        }
+        return this.exceptionMethods;
+    }
 
-    public boolean getIsStackTraceLogged() { return this.isStackTraceLogged; }
+    /**
+     * Where the caught exception is thrown: in the try block or in a method it calls (directly or
+     * through other calls), null if unknown. The call chain starts at the first exception method.
+     */
+    public ExceptionOrigin getExceptionOrigin() {
+        getExceptionMethods(); // the origin is resolved along with the first exception method
+        return this.exceptionOrigin;
+    }
+
+    private LoggingComponents getLogComponentsOfStatement() {
+        if (this.logComponents == null) {
+            this.logComponents = new LoggingComponents(this.logStmt);
+        }
+        return this.logComponents;
+    }
+
+    public String getLogLevel() { return getLogComponentsOfStatement().getLogLevel(); }
+    public String getLogText() { return getLogComponentsOfStatement().getLogStringWithoutVariables(); }
+    public String getLogBody() { return getLogComponentsOfStatement().getLogBody(); }
+
+    public boolean getIsStackTraceLogged() { return getLogComponentsOfStatement().getIsStackTraceLogged(); }
+
+    public String getCatchLocation() { return Locators.getLocationInFile(this.catchSection); }
+    public String getLogLocation() { return Locators.getLocationInFile(this.logStmt); }
+
+    public String getContainingPackageName() {
+        return getContainingPackageName(context.getFile());
+    }
 
     public String getContainingPackageName(PsiElement element) {
         //PsiJavaFile javaFile = (PsiJavaFile) element.getContainingFile();
@@ -250,11 +290,11 @@ public class ExceptionLoggingMetrics {
     }
 
     public String getPresentableExceptionMethod() {
-        if (this.exceptionMethods.size() == 0) {
+        if (getExceptionMethods().size() == 0) {
             return "UnknownMethod";
         } else {//if (this.exceptionMethods.size() == 1) {
             // only consider the first method
-            PsiMethod method = this.exceptionMethods.get(0);
+            PsiMethod method = getExceptionMethods().get(0);
             PsiClass containingClass = method.getContainingClass();
             return containingClass.getName() + "." + method.getName();
         } /*else {
@@ -262,7 +302,28 @@ public class ExceptionLoggingMetrics {
         }*/
     }
 
-    private String getExceptionPackageName() {
+    public String getPresentableExceptionOrigin() {
+        ExceptionOrigin origin = getExceptionOrigin();
+        if (origin == null) {
+            return "UnknownOrigin";
+        } else if (origin.getThrowingMethod() == null) {
+            return "TryBlock";
+        } else {
+            PsiMethod method = origin.getThrowingMethod();
+            PsiClass containingClass = method.getContainingClass();
+            return (containingClass == null ? "" : containingClass.getName() + ".") + method.getName();
+        }
+    }
+
+    /**
+     * Number of calls between the try block and the statement throwing the caught exception, -1 if unknown
+     */
+    public int getExceptionOriginDepth() {
+        ExceptionOrigin origin = getExceptionOrigin();
+        return origin == null ? -1 : origin.getDepth();
+    }
+
+    public String getExceptionPackageName() {
         if (this.exceptionTypes.size() == 0) {
             return "UnknownException";
         } else {
@@ -276,11 +337,11 @@ public class ExceptionLoggingMetrics {
     }
 
     public String getExceptionMethodPackageName() {
-        if (this.exceptionMethods.size() == 0) {
+        if (getExceptionMethods().size() == 0) {
             return "UnknownMethod";
         } else {//if (this.exceptionMethods.size() == 1) {
             // only consider the first method
-            PsiMethod method = this.exceptionMethods.get(0);
+            PsiMethod method = getExceptionMethods().get(0);
             return getContainingPackageName(method);
         } /*else {
             return "MultiMethods";
@@ -330,11 +391,11 @@ public class ExceptionLoggingMetrics {
     }
 
     public String getPresentableExceptionMethodSource() {
-        if (this.exceptionMethods.size() == 0) {
+        if (getExceptionMethods().size() == 0) {
             return "UnknownMethod";
         } else { //if (this.exceptionMethods.size() == 1) {
             // only consider the first method
-            return getMethodSource(this.exceptionMethods.get(0)).name();
+            return getMethodSource(getExceptionMethods().get(0)).name();
         }
 
         /*
@@ -352,31 +413,16 @@ public class ExceptionLoggingMetrics {
     }
 
     public boolean isCatchBlockWithInLoop() {
-        // catch clause
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return false;
-        }
-
         // containing loop statement of the catch block
-        PsiLoopStatement loop = PsiTreeUtil.getParentOfType(catchSection, PsiLoopStatement.class);
-
-        if (loop != null) {
-            return true;
-        }
-
-        return false;
+        return context.getLoopAroundCatchSection() != null;
     }
 
     /**
      * If the logging statement is within a loop inside the containing catch block
      */
     public boolean isLoggingStatementWithinInnerLoop() {
-        // catch clause
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-
         // containing loop statement of the logging statement
-        PsiLoopStatement loop = PsiTreeUtil.getParentOfType(this.logStmt, PsiLoopStatement.class);
+        PsiLoopStatement loop = context.getLoop();
 
         if (loop == null) {
             return false;
@@ -393,11 +439,8 @@ public class ExceptionLoggingMetrics {
      * If the logging statement is within a branch (excluding logging guard) inside the containing catch block
      */
     public boolean isLoggingStatementWithinInnerBranch() {
-        // catch clause
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-
         // containing branch statements
-        PsiIfStatement ifStatement = PsiTreeUtil.getParentOfType(this.logStmt, PsiIfStatement.class);
+        PsiIfStatement ifStatement = context.getIfStatement();
 
         // exclude if statement as a logging guard
         if (ifStatement != null) {
@@ -417,7 +460,7 @@ public class ExceptionLoggingMetrics {
             }
         }
 
-        PsiSwitchStatement switchStatement = PsiTreeUtil.getParentOfType(this.logStmt, PsiSwitchStatement.class);
+        PsiSwitchStatement switchStatement = context.getSwitchStatement();
 
         if (ifStatement != null && PsiTreeUtil.isAncestor(catchSection, ifStatement, true)) {
             return true;
@@ -431,11 +474,8 @@ public class ExceptionLoggingMetrics {
     }
 
     public boolean isLoggingStatementWithinInnderTryBlock() {
-        // catch clause
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-
         // containing try statement of the logging statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(this.logStmt, PsiTryStatement.class);
+        PsiTryStatement tryStatement = context.getInnermostTryStatement();
 
         if (tryStatement == null) {
             return false;
@@ -455,17 +495,19 @@ public class ExceptionLoggingMetrics {
      * Index 1: number of method calls in the containing catch block that are after the logging statement.
      */
     public int[] getNumMethodCallsBeforeAndAfterLogging() {
-        // catch session
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return new int[2];
+        if (this.numMethodCallsBeforeAndAfterLogging == null) {
+            this.numMethodCallsBeforeAndAfterLogging = countMethodCallsBeforeAndAfterLogging();
         }
+        return this.numMethodCallsBeforeAndAfterLogging;
+    }
 
-        // catch-block
-        PsiCodeBlock catchBlock = PsiTreeUtil.getChildOfType(catchSection, PsiCodeBlock.class);
+    private int[] countMethodCallsBeforeAndAfterLogging() {
+        if (this.catchSection == null) {
+            return new int[2];
+        }
 
         // method calls in the catch block
-        Collection<PsiMethodCallExpression> methodCalls = PsiTreeUtil.findChildrenOfType(catchBlock, PsiMethodCallExpression.class);
+        Collection<PsiMethodCallExpression> methodCalls = context.getCatchBlockMethodCalls();
 
         // position of the logging statement
         int log_start_offset =this.logStmt.getTextOffset();
@@ -484,27 +526,27 @@ public class ExceptionLoggingMetrics {
     }
 
     public int[] getLOCBeforeAndAfterLogging() {
-        // catch session
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return new int[2];
+        if (this.LOCBeforeAndAfterLogging == null) {
+            this.LOCBeforeAndAfterLogging = countLOCBeforeAndAfterLogging();
         }
+        return this.LOCBeforeAndAfterLogging;
+    }
 
+    private int[] countLOCBeforeAndAfterLogging() {
         // catch-block
-        PsiCodeBlock catchBlock = PsiTreeUtil.getChildOfType(catchSection, PsiCodeBlock.class);
-
-        // position of the catch block
-        int catch_start_offset = catchBlock.getTextOffset();
-        int catch_end_offset = catch_start_offset + catchBlock.getTextLength() - 1;
-        PsiFile file = catchBlock.getContainingFile();
-        int catch_start_line = StringUtil.offsetToLineNumber(file.getText(), catch_start_offset) + 1;
-        int catch_end_line = StringUtil.offsetToLineNumber(file.getText(), catch_end_offset) + 1;
+        PsiCodeBlock catchBlock = context.getCatchBlock();
+        if (catchBlock == null) {
+            return new int[2];
+        }
 
-        // position of the logging statement
-        int log_start_offset =this.logStmt.getTextOffset();
-        int log_end_offset = log_start_offset + this.logStmt.getTextLength() - 1;
-        int log_start_line = StringUtil.offsetToLineNumber(file.getText(), log_start_offset) + 1;
-        int log_end_line = StringUtil.offsetToLineNumber(file.getText(), log_end_offset) + 1;
+        // lines of the catch block and of the logging statement
+        LineOffsetTable lines = context.getLineOffsetTable();
+        TextRange catchRange = catchBlock.getTextRange();
+        TextRange logRange = this.logStmt.getTextRange();
+        int catch_start_line = lines.getLineNumber(catchRange.getStartOffset());
+        int catch_end_line = lines.getLineNumber(catchRange.getEndOffset() - 1);
+        int log_start_line = lines.getLineNumber(logRange.getStartOffset());
+        int log_end_line = lines.getLineNumber(logRange.getEndOffset() - 1);
 
         int[] LOCs = new int[2];
         LOCs[0] = log_start_line - catch_start_line - 1;// loc before logging statement
@@ -514,62 +556,27 @@ public class ExceptionLoggingMetrics {
     }
 
     public int getTryBlockLOC() {
-        // containing catch block
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return 0;
-        }
-
-        // try statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(catchSection, PsiTryStatement.class);
-        if (tryStatement == null) {
+        // try block of the containing catch block
+        PsiCodeBlock tryBlock = context.getTryBlock();
+        if (tryBlock == null) {
             return 0;
         }
 
-        // try block
-        PsiCodeBlock tryBlock = PsiTreeUtil.getChildOfType(tryStatement, PsiCodeBlock.class);
-
-        // position of the try block
-        int try_start_offset = tryBlock.getTextOffset();
-        int try_end_offset = try_start_offset + tryBlock.getTextLength() - 1;
-        PsiFile file = tryBlock.getContainingFile();
-        int try_start_line = StringUtil.offsetToLineNumber(file.getText(), try_start_offset) + 1;
-        int try_end_line = StringUtil.offsetToLineNumber(file.getText(), try_end_offset) + 1;
-
-        return try_end_line - try_start_line - 1;
+        return context.getLineOffsetTable().getInnerLineCount(tryBlock.getTextRange());
     }
 
     public int getMethodLOC() {
         // containing method
-        PsiMethod method = PsiTreeUtil.getParentOfType(this.logStmt, PsiMethod.class);
+        PsiMethod method = context.getMethod();
 
         if (method != null) {
 
-            // position of the method
-            int method_start_offset = method.getTextOffset();
-            int method_end_offset = method_start_offset + method.getTextLength() - 1;
-            PsiFile file = method.getContainingFile();
-            //if (method_end_offset > file.getText().length()) method_end_offset = file.getText().length();
-            int method_start_line = StringUtil.offsetToLineNumber(file.getText(), method_start_offset) + 1;
-            int method_end_line = StringUtil.offsetToLineNumber(file.getText(), method_end_offset) + 1;
-
-            if (method_end_line - method_start_line -1 < 0) {
-                method_end_line = getFileLOC();
-                /*
-                logger.warn("LOC is negative: " + getLocationInFile(this.logStmt) +
-                        ", method_start_offset: " + method_start_offset +
-                ", method_end_offset: " + method_end_offset +
-                ", method_start_line: " + method_start_line +
-                ", method_end_line: " + method_end_line +
-                ", text length: " + file.getText().length());
-                */
-            }
-
-            return method_end_line - method_start_line - 1;
+            // lines of the method, from its name to its closing brace (none for a single-line method)
+            return Math.max(context.getLineOffsetTable().getInnerLineCount(
+                    new TextRange(method.getTextOffset(), method.getTextRange().getEndOffset())), 0);
         } else {
 
-            PsiClassInitializer classInitializer = PsiTreeUtil.getParentOfType(this.logStmt,
-                    PsiClassInitializer.class);
+            PsiClassInitializer classInitializer = context.getClassInitializer();
 
             if (classInitializer == null) {
                 logger.warn("Could not find containing method or class initializer of logging statement at: " +
@@ -577,92 +584,52 @@ public class ExceptionLoggingMetrics {
                 return 0;
             }
 
-            // position of the class initializer
-            int initializer_start_offset = classInitializer.getTextOffset();
-            int initializer_end_offset = initializer_start_offset + classInitializer.getTextLength() - 1;
-            PsiFile file = classInitializer.getContainingFile();
-            //if (initializer_end_offset > file.getText().length()) initializer_end_offset = file.getText().length();
-            int initializer_start_line = StringUtil.offsetToLineNumber(file.getText(), initializer_start_offset) + 1;
-            int initializer_end_line = StringUtil.offsetToLineNumber(file.getText(), initializer_end_offset) + 1;
-
-            if (initializer_end_line - initializer_start_line - 1 < 0) {
-                initializer_end_line = getFileLOC();
-            }
-
-            return initializer_end_line - initializer_start_line - 1;
+            return Math.max(context.getLineOffsetTable().getInnerLineCount(classInitializer.getTextRange()), 0);
         }
     }
 
     public int getFileLOC() {
-        PsiFile file = this.logStmt.getContainingFile();
-        return StringUtil.getLineBreakCount(file.getText());
+        return context.getLineOffsetTable().getLineBreakCount();
     }
 
     public int getNumMethodCallsInTryBlock() {
-        // containing catch block
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return 0;
-        }
-
-        // try statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(catchSection, PsiTryStatement.class);
-        if (tryStatement == null) {
-            return 0;
-        }
-
-        // try block
-        PsiCodeBlock tryBlock = PsiTreeUtil.getChildOfType(tryStatement, PsiCodeBlock.class);
-
         // number of the method calls in the try block
-        Collection<PsiMethodCallExpression> methodCalls = PsiTreeUtil.findChildrenOfType(tryBlock, PsiMethodCallExpression.class);
-
-        return methodCalls.size();
+        return context.getTryBlockMethodCalls().size();
     }
 
     public int getNumMethodCallsInMethod() {
         // containing method
-        PsiMethod method = PsiTreeUtil.getParentOfType(this.logStmt, PsiMethod.class);
+        PsiMethod method = context.getMethod();
         if (method == null) {
             return 0;
         }
-        Collection<PsiMethodCallExpression> methodCalls = PsiTreeUtil.findChildrenOfType(method, PsiMethodCallExpression.class);
 
-        return methodCalls.size();
+        // method calls are counted during the single pass over the containing file
+        return JavaFileFacts.of(context.getFile()).getNumMethodCallsInMethod(method);
     }
 
     public int getUsageNumOfContainingMethod() {
         // containing method
-        PsiMethod method = PsiTreeUtil.getParentOfType(this.logStmt, PsiMethod.class);
+        PsiMethod method = context.getMethod();
         if (method == null) {
             return 0;
         }
 
-        Query<PsiReference> references = ReferencesSearch.search(method);
-        return references.findAll().size();
+        return FanInCalculator.getInstance(this.project).getUsageCount(method);
     }
 
     public int getUsageNumOfContainingMethodAndSuperMethods() {
         // containing method
-        PsiMethod method = PsiTreeUtil.getParentOfType(this.logStmt, PsiMethod.class);
+        PsiMethod method = context.getMethod();
         if (method == null) {
             return 0;
         }
-        Query<PsiReference> methodRefs = ReferencesSearch.search(method);
 
-        PsiMethod[] superMethods = method.findSuperMethods();
-        List<PsiReference> superRefs = new ArrayList<>();
-        for (PsiMethod superMethod : superMethods) {
-            superRefs.addAll(ReferencesSearch.search(superMethod).findAll());
-        }
-
-        return methodRefs.findAll().size() + superRefs.size();
+        return FanInCalculator.getInstance(this.project).getUsageCountWithSuperMethods(method);
     }
 
     public int getNumReturnInCatchBlock() {
-        // catch session
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
+        if (this.catchSection == null) {
             return 0;
         }
 
@@ -671,9 +638,7 @@ public class ExceptionLoggingMetrics {
     }
 
     public int getNumThrowInCatchBlock() {
-        // catch session
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
+        if (this.catchSection == null) {
             return 0;
         }
 
@@ -682,49 +647,13 @@ public class ExceptionLoggingMetrics {
     }
 
     public int getNumReturnInTryBlock() {
-        // containing catch block
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return 0;
-        }
-
-        // try statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(catchSection, PsiTryStatement.class);
-        if (tryStatement == null) {
-            return 0;
-        }
-
-        // try block
-        PsiCodeBlock tryBlock = PsiTreeUtil.getChildOfType(tryStatement, PsiCodeBlock.class);
-
-        // number of the method calls in the try block
-        Collection<PsiReturnStatement> returnStatements = PsiTreeUtil.findChildrenOfType(tryBlock, PsiReturnStatement.class);
-
-        return returnStatements.size();
-
+        // number of the return statements in the try block
+        return context.getTryBlockReturnStatements().size();
     }
 
     public int getNumThrowInTryBlock() {
-        // containing catch block
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(this.logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return 0;
-        }
-
-        // try statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(catchSection, PsiTryStatement.class);
-        if (tryStatement == null) {
-            return 0;
-        }
-
-        // try block
-        PsiCodeBlock tryBlock = PsiTreeUtil.getChildOfType(tryStatement, PsiCodeBlock.class);
-
-        // number of the method calls in the try block
-        Collection<PsiThrowStatement> throwStatements = PsiTreeUtil.findChildrenOfType(tryBlock, PsiThrowStatement.class);
-
-        return throwStatements.size();
-
+        // number of the throw statements in the try block
+        return context.getTryBlockThrowStatements().size();
     }
 
     private ReferenceSource getExceptionSource(PsiType ex) {
@@ -732,83 +661,21 @@ public class ExceptionLoggingMetrics {
         if (exClass == null) {
             return ReferenceSource.UNKNOWN;
         }
-        VirtualFile vf = exClass.getContainingFile().getVirtualFile();
-        //logger.debug("Virtual file: " + vf.getCanonicalPath());
-        ReferenceSource source = getReferenceSourceOfVirtualFile(vf);
-
-        //logger.debug("Exception: " + ex.getCanonicalText() +
-        //        ", source: " + source);
-
-        return source;
+        return ReferenceSourceResolver.getInstance(this.project).getReferenceSource(exClass);
     }
 
     private ExceptionCategory getExceptionCategory(PsiType ex) {
-        if (isRuntimeExceptionType(ex)) {
-            return ExceptionCategory.RUNTIME;
-        } else if (isErrorType(ex)) {
-            return ExceptionCategory.ERROR;
-        } else if (isCheckedException(ex)) {
-            return ExceptionCategory.CHECKED;
-        } else {
-            return ExceptionCategory.GENERAL;
-        }
+        return ExceptionTypeHierarchy.getInstance(this.project).getExceptionCategory(ex);
     }
 
     private ReferenceSource getMethodSource(PsiMethod method) {
-        VirtualFile vf = method.getContainingFile().getVirtualFile();
-        ReferenceSource source = getReferenceSourceOfVirtualFile(vf);
-
-        //logger.debug("Method: " + method.getContainingClass().getQualifiedName() + "." + method.getName() +
-        //        ", source: " + source);
-        return source;
-    }
-
-    @NotNull
-    private ReferenceSource getReferenceSourceOfVirtualFile(VirtualFile vf) {
-        ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(this.project).getFileIndex();
-        boolean isInLibraryOrJdk = projectFileIndex.isInLibrary(vf);
-        boolean isInLibrary = false, isInJdk = false;
-        //irtualFile ContentRoot = projectFileIndex.getContentRootForFile(vf);
-        if (isInLibraryOrJdk) {
-            List<OrderEntry> orderEntries = projectFileIndex.getOrderEntriesForFile(vf);
-            for (OrderEntry entry : orderEntries) {
-                if (entry instanceof LibraryOrderEntry) {
-                    isInLibrary = true;
-                }
-                if (entry instanceof JdkOrderEntry) {
-                    isInJdk = true;
-                }
-            }
-        }
-
-        if (isInJdk) {
-            return ReferenceSource.FROMJDK;
-        } else if (isInLibrary) {
-            return ReferenceSource.FROMLIBRARY;
-        } else {
-            return ReferenceSource.FROMPROJECT;
-        }
+        return ReferenceSourceResolver.getInstance(this.project).getReferenceSource(method);
     }
 
     private PsiClass getExceptionClass(PsiType ex) {
         return ((PsiClassType)ex).resolve();
     }
 
-    /**
-     * Get the exception types of the catch block that contain the logging statement (i.e., logged exception types)
-     * @return
-     */
-    private List<PsiType> deriveExceptionTypes(PsiMethodCallExpression logStmt) {
-        // catch clause
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return null;
-        }
-        List<PsiType> exceptionTypes = extractExceptionTypesForCatchSection(catchSection);
-
-        return exceptionTypes;
-    }
-
     public static List<PsiType> extractExceptionTypesForCatchSection(PsiCatchSection catchSection) {
         // exception parameter declaration
         PsiParameter para = PsiTreeUtil.findChildOfType(catchSection, PsiParameter.class);
@@ -838,127 +705,44 @@ public class ExceptionLoggingMetrics {
      * Get the methods in the try block that "throws" the logged exception types (or their sub types)
      * @return
      */
-    private List<PsiMethod> resolveExceptionMethods(PsiMethodCallExpression logStmt) {
+    private List<PsiMethod> resolveExceptionMethods() {
         List<PsiMethod> exMethods = new ArrayList<>();
 
-        // containing catch block
-        PsiCatchSection catchSection = PsiTreeUtil.getParentOfType(logStmt, PsiCatchSection.class);
-        if (catchSection == null) {
-            return null;
-        }
-
-        // try statement
-        PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(catchSection, PsiTryStatement.class);
-        if (tryStatement == null) {
-            return null;
-        }
-
-
-        // exceptions caught by prior sibling catches
-        PsiCatchSection[] siblingCatches = PsiTreeUtil.getChildrenOfType(tryStatement, PsiCatchSection.class);
-        List<PsiType> priorSiblingCaughtExceptions = new ArrayList<>();
-        for (PsiCatchSection c : siblingCatches) {
-            if (c.getTextOffset() < catchSection.getTextOffset()) { // prior sibling catch clause
-                priorSiblingCaughtExceptions.addAll(extractExceptionTypesForCatchSection(c));
-            }
-        }
-
-        // exceptions caught by all prior catches (including sibling catches and internal catches)
-        Collection<PsiCatchSection> allPriorCatches = PsiTreeUtil.findChildrenOfType(tryStatement, PsiCatchSection.class);
-        allPriorCatches.removeIf(c -> {
-            return c.getTextOffset() >= catchSection.getTextOffset();
-        });
-
-        /*
-        List<PsiType> priorCaughtExceptions = new ArrayList<>();
-        for (PsiCatchSection c : allCatches) {
-            if (c.getTextOffset() < catchSection.getTextOffset()) { // prior catch clause
-                priorCaughtExceptions.addAll(extractExceptionTypesForCatchSection(c));
-            }
+        // try statement of the containing catch block
+        if (context.getTryStatement() == null) {
+            return exMethods;
         }
-        */
 
-
-        // try-block
-        PsiCodeBlock tryBlock = PsiTreeUtil.getChildOfType(tryStatement, PsiCodeBlock.class);
+        // exceptions reaching the catches of the try statement, shared by all its catches and logging statements
+        TryExceptionFlow flow = context.getTryExceptionFlow();
+        int catchIndex = flow.getCatchSections().indexOf(this.catchSection);
 
         // checked if the caught exceptions are thrown in the containing try block
-
-        Collection<PsiThrowStatement> throwStatements = PsiTreeUtil.findChildrenOfType(tryBlock, PsiThrowStatement.class);
-        for (PsiThrowStatement throwS : throwStatements) {
-            PsiNewExpression newExpr = PsiTreeUtil.findChildOfType(throwS, PsiNewExpression.class);
-            if (newExpr == null) {
-                //logger.debug("Cannot get new expression of throw statement: " + throwS.getText());
-                continue;
-            }
-            PsiClass exClass = (PsiClass) newExpr.getClassReference().resolve();
-            if (exClass == null) {
-                //logger.debug("Fail to resolve exception class for new expression: " + newExpr.getText());
-                continue;
-            }
-            //logger.info("Resolved exception class for new expression: " + newExpr.getText() +
-            //        ", to exception class: " + exClass.getQualifiedName());
-
-            //logger.debug("New expression: " + newExpr.getText() + ", Exception Class name: " + exClass.getQualifiedName());
-            PsiType thrownExType = getPsiTypeByQualifiedName(exClass.getQualifiedName());
-            if (thrownExType == null) continue;
-
-            // CHeck if the thrown exception is caught by prior catches
-            boolean caughtByPriorCatches = false;
-            for (PsiCatchSection priorCatch : allPriorCatches) {
-                // Check if the prior catch is able to catch the thrown exception
-                // (exception is thrown within the corresponding try block
-                PsiTryStatement matchingTryStmt = PsiTreeUtil.getParentOfType(priorCatch, PsiTryStatement.class);
-                PsiCodeBlock matchingTryBlock = PsiTreeUtil.getChildOfType(matchingTryStmt, PsiCodeBlock.class);
-                if (!PsiTreeUtil.isAncestor(matchingTryBlock, throwS, true)) {
-                    continue;
-                }
-
-                // check if the prior caught exceptions match the thrown exception
-                List<PsiType> caughtTypes = extractExceptionTypesForCatchSection(priorCatch);
-                for (PsiType caughtType : caughtTypes) {
-                    if (isSubType(thrownExType, caughtType, false)) {
-                        caughtByPriorCatches = true;
-                        break;
-                    }
-                }
-                if (caughtByPriorCatches) break;
-            }
-
-            if (caughtByPriorCatches) continue;
+        for (TryExceptionFlow.ThrowSite throwSite : flow.getThrowSites()) {
+            // Check if the thrown exception is caught by prior catches
+            TryExceptionFlow.ThrownType thrownExType = throwSite.getThrownType();
+            if (thrownExType.isCaughtBefore(catchIndex)) continue;
 
             // Check if the thrown exception is caught by current catch
-            boolean caughtByCurrentCatch = false;
-            for (PsiType caughtType : this.exceptionTypes) {
-                if (isSubType(thrownExType, caughtType, false)) {
-                    PsiMethod method = PsiTreeUtil.getParentOfType(throwS, PsiMethod.class);
-                    exMethods.add(method);
-                    caughtByCurrentCatch = true;
-                    break;
-                }
+            if (isCaughtByCurrentCatch(thrownExType.getType(), false)) {
+                PsiMethod method = PsiTreeUtil.getParentOfType(throwSite.getThrowStatement(), PsiMethod.class);
+                exMethods.add(method);
+                this.exceptionOrigin = new ExceptionOrigin(thrownExType.getType(), new ArrayList<>(), false);
+                break;
             }
-            if (caughtByCurrentCatch) break;
         }
 
-        // method calls in the try block
-        Collection<PsiMethodCallExpression> methodCalls = PsiTreeUtil.findChildrenOfType(tryBlock, PsiMethodCallExpression.class);
-
-        // new expressions (e.g., new LdapName(dn)) can also throw exceptions
-        Collection<PsiNewExpression> newExpressions = PsiTreeUtil.findChildrenOfType(tryBlock, PsiNewExpression.class);
-
-        // combine method calls and new expressions
-        List<PsiCallExpression> callExpressions = new ArrayList<>();
-        callExpressions.addAll(methodCalls);
-        callExpressions.addAll(newExpressions);
+        // method calls and new expressions (e.g., new LdapName(dn)) in the try block
+        List<TryExceptionFlow.CallSite> callSites = flow.getCallSites();
 
         // if there is no method call, return
-        if (callExpressions.size() == 0) return exMethods;
+        if (callSites.size() == 0) return exMethods;
 
         // if there is only one method call in the try block, then it is the exception throwing method
-        if (exMethods.size() == 0  && callExpressions.size() == 1) {
-            PsiMethod method = callExpressions.get(0).resolveMethod();
+        if (exMethods.size() == 0  && callSites.size() == 1) {
+            PsiMethod method = callSites.get(0).getMethod();
             if (method != null) {
-                exMethods.add(method);
+                addCallSiteMethod(exMethods, flow, callSites.get(0), catchIndex, false);
                 return exMethods;
             }
         }
@@ -968,50 +752,17 @@ public class ExceptionLoggingMetrics {
         // Match exceptions with methods inside the try block
         // Caught exception is equal to or is parent of method-specified exception
         // Excluding exceptions that are caught by prior catches
-        for (PsiCallExpression callExpr : callExpressions) {
-            PsiMethod method = callExpr.resolveMethod();
-            if (method == null) continue;
-
-            PsiType[] throwsTypes = method.getThrowsList().getReferencedTypes();
-
-            for (PsiType throwsType: throwsTypes) {
+        for (TryExceptionFlow.CallSite callSite : callSites) {
+            for (TryExceptionFlow.ThrownType throwsType : callSite.getDeclaredTypes()) {
                 // Check if the specified exception is caught by prior catches
-                boolean caughtByPriorCatches = false;
-                for (PsiCatchSection priorCatch : allPriorCatches) {
-                    // Check if the prior catch is able to catch the thrown exception
-                    // (exception is thrown within the corresponding try block
-                    PsiTryStatement matchingTryStmt = PsiTreeUtil.getParentOfType(priorCatch, PsiTryStatement.class);
-                    PsiCodeBlock matchingTryBlock = PsiTreeUtil.getChildOfType(matchingTryStmt, PsiCodeBlock.class);
-                    if (!PsiTreeUtil.isAncestor(matchingTryBlock, callExpr, true)) {
-                        continue;
-                    }
-
-                    // check if the prior caught exceptions match the thrown exception
-                    List<PsiType> caughtTypes = extractExceptionTypesForCatchSection(priorCatch);
-                    for (PsiType caughtType : caughtTypes) {
-                        if (isSubType(throwsType, caughtType, false)) {
-                            caughtByPriorCatches = true;
-                            break;
-                        }
-                    }
-                    if (caughtByPriorCatches) break;
-                }
-
-                if (caughtByPriorCatches) continue;
+                if (throwsType.isCaughtBefore(catchIndex)) continue;
 
                 // Check if the specified exception is caught by the current catch
-                boolean caughtByCurrentCatch = false;
-                for (PsiType caughtType : this.exceptionTypes) {
-                    if (isSubType(throwsType, caughtType, false)) {
-                        exMethods.add(method);
-                        caughtByCurrentCatch = true;
-                        break;
-                    }
+                if (isCaughtByCurrentCatch(throwsType.getType(), false)) {
+                    addCallSiteMethod(exMethods, flow, callSite, catchIndex, false);
+                    break;
                 }
-                if (caughtByCurrentCatch) break;
             }
-            //if (match) break; // only choose the first matching method.
-
         }
 
         // if caught exceptions are resolved to either throw statements or method calls, return the results
@@ -1019,55 +770,34 @@ public class ExceptionLoggingMetrics {
             return exMethods;
         }
 
+        // Match the caught exceptions with the exceptions escaping from the called methods, including the
+        // unchecked exceptions thrown a few calls deep (up to the depth in the settings).
+        // Only the first match is kept: with a broad catch (e.g., RuntimeException), most called methods
+        // throw some unchecked exception deep down
+        for (TryExceptionFlow.CallSite callSite : callSites) {
+            ExceptionOrigin origin = findCaughtOrigin(flow, callSite, catchIndex, false);
+            if (origin != null) {
+                exMethods.add(callSite.getMethod());
+                this.exceptionOrigin = origin;
+                return exMethods;
+            }
+        }
+
         // If caught exceptions are not resolved, try something else (release the throw-throws-catch matching criterion)
 
         // Child match (catch exception can be the child of a method-specified exception)
         // In cases when the exception thrown at runtime can be the caught exception, even though the specified exception is the parent
-        for (PsiCallExpression callExpr : callExpressions) {
-            PsiMethod method = callExpr.resolveMethod();
-            if (method == null) continue;
-
-            PsiType[] throwsTypes = method.getThrowsList().getReferencedTypes();
-
-            for (PsiType throwsType: throwsTypes) {
+        for (TryExceptionFlow.CallSite callSite : callSites) {
+            for (TryExceptionFlow.ThrownType throwsType : callSite.getDeclaredTypes()) {
                 // Check if the specified exception is caught by prior catches
-                boolean caughtByPriorCatches = false;
-                for (PsiCatchSection priorCatch : allPriorCatches) {
-                    // Check if the prior catch is able to catch the thrown exception
-                    // (exception is thrown within the corresponding try block
-                    PsiTryStatement matchingTryStmt = PsiTreeUtil.getParentOfType(priorCatch, PsiTryStatement.class);
-                    PsiCodeBlock matchingTryBlock = PsiTreeUtil.getChildOfType(matchingTryStmt, PsiCodeBlock.class);
-                    if (!PsiTreeUtil.isAncestor(matchingTryBlock, callExpr, true)) {
-                        continue;
-                    }
-
-                    // check if the prior caught exceptions match the thrown exception
-                    List<PsiType> caughtTypes = extractExceptionTypesForCatchSection(priorCatch);
-                    for (PsiType caughtType : caughtTypes) {
-                        if (isSubType(throwsType, caughtType, false)) {
-                            caughtByPriorCatches = true;
-                            break;
-                        }
-                    }
-                    if (caughtByPriorCatches) break;
-                }
-
-                if (caughtByPriorCatches) continue;
+                if (throwsType.isCaughtBefore(catchIndex)) continue;
 
                 // Check if the specified exception is caught by the current catch
-                boolean caughtByCurrentCatch = false;
-                for (PsiType caughtType : this.exceptionTypes) {
-                    // release the throws-catch matching criterion
-                    if (isSubType(throwsType, caughtType, false) ||
-                            isSubType(caughtType, throwsType, true)) {
-                        exMethods.add(method);
-                        caughtByCurrentCatch = true;
-                        break;
-                    }
+                if (isCaughtByCurrentCatch(throwsType.getType(), true)) {
+                    addCallSiteMethod(exMethods, flow, callSite, catchIndex, true);
+                    break;
                 }
-                if (caughtByCurrentCatch) break;
             }
-            //if (match) break; // only choose the first matching method.
         }
 
         if (exMethods.size() > 0) {
@@ -1075,10 +805,9 @@ public class ExceptionLoggingMetrics {
         }
 
         // if caught exceptions are still not resolved, return the first method call
-        for (PsiCallExpression callExpr : callExpressions) {
-            PsiMethod method = callExpr.resolveMethod();
-            if (method != null) {
-                exMethods.add(method);
+        for (TryExceptionFlow.CallSite callSite : callSites) {
+            if (callSite.getMethod() != null) {
+                addCallSiteMethod(exMethods, flow, callSite, catchIndex, true);
                 break;
             }
         }
@@ -1242,58 +971,60 @@ public class ExceptionLoggingMetrics {
     }
 
     /**
-     * Recursively check if a type is a sub-type of another type
-     * @param child
-     * @param parent
-     * @param strict: true -> returns false for same type; false -> return true for same type.
-     * @return
+     * Add the method called at a call site of the try block to the exception methods. For the first exception
+     * method, the origin of the caught exception is looked up among the exceptions escaping from the call.
+     * @param relaxed: the method was matched with the relaxed throws-catch criterion
      */
-    private boolean isSubType(PsiType child, PsiType parent, boolean strict) {
+    private void addCallSiteMethod(List<PsiMethod> exMethods, TryExceptionFlow flow,
+                                   TryExceptionFlow.CallSite callSite, int catchIndex, boolean relaxed) {
+        if (exMethods.isEmpty()) {
+            this.exceptionOrigin = findCaughtOrigin(flow, callSite, catchIndex, relaxed);
+        }
+        exMethods.add(callSite.getMethod());
+    }
 
-        if (child.getCanonicalText().equals(parent.getCanonicalText())) {
-            if (strict) {
-                return false;
-            } else {
-                return true;
+    /**
+     * The first exception escaping from a call of the try block (the closest first) that reaches the catch block
+     * of the logging statement, null if none does
+     */
+    private ExceptionOrigin findCaughtOrigin(TryExceptionFlow flow, TryExceptionFlow.CallSite callSite,
+                                             int catchIndex, boolean relaxed) {
+        if (callSite.getMethod() == null) {
+            return null;
+        }
+        for (ExceptionOrigin origin : ExceptionOriginAnalyzer.getInstance(this.project)
+                .getExceptionOrigins(callSite.getMethod())) {
+            TryExceptionFlow.ThrownType thrownType = flow.getHandling(origin.getType(), callSite.getCall());
+            if (!thrownType.isCaughtBefore(catchIndex) && isCaughtByCurrentCatch(origin.getType(), relaxed)) {
+                return origin;
             }
         }
+        return null;
+    }
 
-        PsiType[] superTypes = child.getSuperTypes();
-        for (PsiType t : superTypes) {
-            if (t.getCanonicalText().equals(parent.getCanonicalText()) ||
-                    isSubType(t, parent, true)) {
+    /**
+     * Check if an exception is caught by the catch block of the logging statement
+     * @param relaxed: also match the caught exceptions that are sub-types of the exception
+     */
+    private boolean isCaughtByCurrentCatch(PsiType exType, boolean relaxed) {
+        for (PsiType caughtType : this.exceptionTypes) {
+            // release the throws-catch matching criterion
+            if (isSubType(exType, caughtType, false) || (relaxed && isSubType(caughtType, exType, true))) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean isSameType(PsiType t1, PsiType t2) {
-        return t1.getCanonicalText().equals(t2.getCanonicalText());
-    }
-
-
-    private boolean isRuntimeExceptionType(PsiType t) {
-        PsiType runtimeException = PsiType.getTypeByName("java.lang.RuntimeException", this.project,
-                GlobalSearchScope.allScope(this.project));
-        return isSubType(t, runtimeException, false);
-    }
-
-    private boolean isErrorType(PsiType t) {
-        PsiType error = PsiType.getTypeByName("java.lang.Error", this.project,
-                GlobalSearchScope.allScope(this.project));
-        return isSubType(t, error, false);
-    }
-
-    private boolean isCheckedException(PsiType t) {
-        PsiType exception = PsiType.getTypeByName("java.lang.Exception", this.project,
-                GlobalSearchScope.allScope(this.project));
-        return isSubType(t, exception, true) && !isRuntimeExceptionType(t);
-    }
-
-    private PsiType getPsiTypeByQualifiedName(String typeQName) {
-        return PsiType.getTypeByName(typeQName, this.project,
-                GlobalSearchScope.allScope(this.project));
+    /**
+     * Check if a type is a sub-type of another type
+     * @param child
+     * @param parent
+     * @param strict: true -> returns false for same type; false -> return true for same type.
+     * @return
+     */
+    private boolean isSubType(PsiType child, PsiType parent, boolean strict) {
+        return ExceptionTypeHierarchy.getInstance(this.project).isSubType(child, parent, strict);
     }
 
     private String extractLogLevel(PsiMethodCallExpression logStmt) {
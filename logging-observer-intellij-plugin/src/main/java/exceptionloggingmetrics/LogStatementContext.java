@@ -0,0 +1,151 @@
+package exceptionloggingmetrics;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import common.LineOffsetTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The elements enclosing a logging statement (catch section, try statement, method, class, file), resolved in
+ * a single walk up the PSI tree and shared by all the metrics of the statement, along with values derived from
+ * them (e.g., the calls in the try block, the exception flow of the try statement) which are computed on first use.
+ * Not thread-safe, create one context per logging statement and use it in a read action.
+ */
+public class LogStatementContext {
+    private final PsiMethodCallExpression logStmt;
+    private final PsiFile file;
+    private PsiCatchSection catchSection;
+    private PsiTryStatement tryStatement; // the try statement of the catch section
+    private PsiMethod method;
+    private PsiClassInitializer classInitializer;
+    private PsiClass containingClass;
+    // innermost statements enclosing the logging statement
+    private PsiLoopStatement loop;
+    private PsiIfStatement ifStatement;
+    private PsiSwitchStatement switchStatement;
+    private PsiTryStatement innermostTryStatement;
+    // innermost loop enclosing the catch section
+    private PsiLoopStatement loopAroundCatchSection;
+
+    // derived values, computed on first use
+    private List<PsiType> caughtExceptionTypes;
+    private Collection<PsiMethodCallExpression> catchBlockMethodCalls;
+    private Collection<PsiMethodCallExpression> tryBlockMethodCalls;
+    private Collection<PsiThrowStatement> tryBlockThrowStatements;
+    private Collection<PsiReturnStatement> tryBlockReturnStatements;
+    private TryExceptionFlow tryExceptionFlow;
+
+    public LogStatementContext(@NotNull PsiMethodCallExpression logStmt) {
+        this.logStmt = logStmt;
+        this.file = logStmt.getContainingFile();
+
+        for (PsiElement parent = logStmt.getParent(); parent != null && !(parent instanceof PsiFile);
+             parent = parent.getParent()) {
+            if (parent instanceof PsiCatchSection && catchSection == null) {
+                catchSection = (PsiCatchSection) parent;
+                tryStatement = catchSection.getTryStatement();
+            } else if (parent instanceof PsiLoopStatement) {
+                if (loop == null) loop = (PsiLoopStatement) parent;
+                if (catchSection != null && loopAroundCatchSection == null) {
+                    loopAroundCatchSection = (PsiLoopStatement) parent;
+                }
+            } else if (parent instanceof PsiIfStatement && ifStatement == null) {
+                ifStatement = (PsiIfStatement) parent;
+            } else if (parent instanceof PsiSwitchStatement && switchStatement == null) {
+                switchStatement = (PsiSwitchStatement) parent;
+            } else if (parent instanceof PsiTryStatement && innermostTryStatement == null) {
+                innermostTryStatement = (PsiTryStatement) parent;
+            } else if (parent instanceof PsiMethod && method == null) {
+                method = (PsiMethod) parent;
+            } else if (parent instanceof PsiClassInitializer && classInitializer == null) {
+                classInitializer = (PsiClassInitializer) parent;
+            } else if (parent instanceof PsiClass && containingClass == null) {
+                containingClass = (PsiClass) parent;
+            }
+        }
+    }
+
+    public PsiMethodCallExpression getLogStmt() { return this.logStmt; }
+    public PsiFile getFile() { return this.file; }
+    @Nullable public PsiCatchSection getCatchSection() { return this.catchSection; }
+    @Nullable public PsiTryStatement getTryStatement() { return this.tryStatement; }
+    @Nullable public PsiMethod getMethod() { return this.method; }
+    @Nullable public PsiClassInitializer getClassInitializer() { return this.classInitializer; }
+    @Nullable public PsiClass getContainingClass() { return this.containingClass; }
+    @Nullable public PsiLoopStatement getLoop() { return this.loop; }
+    @Nullable public PsiIfStatement getIfStatement() { return this.ifStatement; }
+    @Nullable public PsiSwitchStatement getSwitchStatement() { return this.switchStatement; }
+    @Nullable public PsiTryStatement getInnermostTryStatement() { return this.innermostTryStatement; }
+    @Nullable public PsiLoopStatement getLoopAroundCatchSection() { return this.loopAroundCatchSection; }
+
+    @Nullable
+    public PsiCodeBlock getCatchBlock() {
+        return catchSection == null ? null : catchSection.getCatchBlock();
+    }
+
+    @Nullable
+    public PsiCodeBlock getTryBlock() {
+        return tryStatement == null ? null : tryStatement.getTryBlock();
+    }
+
+    public LineOffsetTable getLineOffsetTable() {
+        return LineOffsetTable.of(file);
+    }
+
+    /**
+     * Exception types caught by the catch section, with the alternatives of a multi-catch listed separately
+     */
+    public List<PsiType> getCaughtExceptionTypes() {
+        if (caughtExceptionTypes == null) {
+            caughtExceptionTypes = catchSection == null
+                    ? Collections.emptyList()
+                    : ExceptionLoggingMetrics.extractExceptionTypesForCatchSection(catchSection);
+        }
+        return caughtExceptionTypes;
+    }
+
+    /**
+     * Exceptions reaching the catch sections of the try statement, shared with the other logging statements
+     * of the try statement
+     */
+    @Nullable
+    public TryExceptionFlow getTryExceptionFlow() {
+        if (tryExceptionFlow == null && tryStatement != null) {
+            tryExceptionFlow = TryExceptionFlow.of(tryStatement);
+        }
+        return tryExceptionFlow;
+    }
+
+    public Collection<PsiMethodCallExpression> getCatchBlockMethodCalls() {
+        if (catchBlockMethodCalls == null) {
+            catchBlockMethodCalls = PsiTreeUtil.findChildrenOfType(getCatchBlock(), PsiMethodCallExpression.class);
+        }
+        return catchBlockMethodCalls;
+    }
+
+    public Collection<PsiMethodCallExpression> getTryBlockMethodCalls() {
+        if (tryBlockMethodCalls == null) {
+            tryBlockMethodCalls = PsiTreeUtil.findChildrenOfType(getTryBlock(), PsiMethodCallExpression.class);
+        }
+        return tryBlockMethodCalls;
+    }
+
+    public Collection<PsiThrowStatement> getTryBlockThrowStatements() {
+        if (tryBlockThrowStatements == null) {
+            tryBlockThrowStatements = PsiTreeUtil.findChildrenOfType(getTryBlock(), PsiThrowStatement.class);
+        }
+        return tryBlockThrowStatements;
+    }
+
+    public Collection<PsiReturnStatement> getTryBlockReturnStatements() {
+        if (tryBlockReturnStatements == null) {
+            tryBlockReturnStatements = PsiTreeUtil.findChildrenOfType(getTryBlock(), PsiReturnStatement.class);
+        }
+        return tryBlockReturnStatements;
+    }
+}
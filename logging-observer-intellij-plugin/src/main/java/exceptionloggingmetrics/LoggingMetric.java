@@ -0,0 +1,39 @@
+package exceptionloggingmetrics;
+
+import java.util.function.Function;
+
+/**
+ * A column of the exception logging metrics: its name in the header, its cost class and how its value is
+ * computed for a logging statement. A metric depending on the code of other files (e.g., the usages of the
+ * containing method) is not cached per file, it is computed again for each export.
+ */
+public final class LoggingMetric {
+    private final String name;
+    private final MetricCost cost;
+    private final boolean dependsOnOtherFiles;
+    private final String description;
+    private final Function<ExceptionLoggingMetrics, Object> extractor;
+
+    LoggingMetric(String name, MetricCost cost, String description,
+                  Function<ExceptionLoggingMetrics, Object> extractor) {
+        this(name, cost, cost == MetricCost.PROJECT_SEARCH, description, extractor);
+    }
+
+    LoggingMetric(String name, MetricCost cost, boolean dependsOnOtherFiles, String description,
+                  Function<ExceptionLoggingMetrics, Object> extractor) {
+        this.name = name;
+        this.cost = cost;
+        this.dependsOnOtherFiles = dependsOnOtherFiles;
+        this.description = description;
+        this.extractor = extractor;
+    }
+
+    public String getName() { return this.name; }
+    public MetricCost getCost() { return this.cost; }
+    public boolean dependsOnOtherFiles() { return this.dependsOnOtherFiles; }
+    public String getDescription() { return this.description; }
+
+    String compute(ExceptionLoggingMetrics metrics) {
+        return String.valueOf(extractor.apply(metrics));
+    }
+}
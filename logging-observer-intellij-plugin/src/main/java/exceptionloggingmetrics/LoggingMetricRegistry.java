@@ -0,0 +1,127 @@
+package exceptionloggingmetrics;
+
+import settings.LoggingObserverSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static exceptionloggingmetrics.MetricCost.*;
+
+/**
+ * All the exception logging metrics, in the order of the exported columns.
+ * Only the metrics enabled in the settings are computed and exported.
+ */
+public class LoggingMetricRegistry {
+
+    private static final List<LoggingMetric> METRICS = Collections.unmodifiableList(Arrays.asList(
+            // log identification/index
+            new LoggingMetric("catchLocation", SYNTACTIC, "the location of the containing catch block",
+                    ExceptionLoggingMetrics::getCatchLocation),
+            new LoggingMetric("logLocation", SYNTACTIC, "the location of the logging statement - fileName:lineNumber",
+                    ExceptionLoggingMetrics::getLogLocation),
+
+            // response variables
+            new LoggingMetric("logLevel", SYNTACTIC, "log level of the logging statement",
+                    ExceptionLoggingMetrics::getLogLevel),
+            new LoggingMetric("logStackTrace", RESOLVE, "if the logging statement logged the stack trace",
+                    ExceptionLoggingMetrics::getIsStackTraceLogged),
+
+            // explanatory variables
+            new LoggingMetric("containingPackage", SYNTACTIC, "package of the logging statement",
+                    ExceptionLoggingMetrics::getContainingPackageName),
+            new LoggingMetric("exceptionType", SYNTACTIC, "exceptions caught by the containing catch block",
+                    ExceptionLoggingMetrics::getPresentableExceptionType),
+            new LoggingMetric("parentExType", RESOLVE, "parent type of the caught exception",
+                    ExceptionLoggingMetrics::getParentExceptionType),
+            new LoggingMetric("grandParentExType", RESOLVE, "grandparent type of the caught exception",
+                    ExceptionLoggingMetrics::getGrandParentType),
+            new LoggingMetric("exceptionPackage", RESOLVE, "package of the caught exception",
+                    ExceptionLoggingMetrics::getExceptionPackageName),
+            new LoggingMetric("exceptionCategory", RESOLVE, "normal exception, RuntimeException, or Error",
+                    ExceptionLoggingMetrics::getPresentableExceptionCategory),
+            new LoggingMetric("exceptionSource", RESOLVE, "project, library, or JDK",
+                    ExceptionLoggingMetrics::getPresentableExceptionSource),
+            new LoggingMetric("exceptionNum", SYNTACTIC, "number of exceptions caught by the containing catch block",
+                    metrics -> metrics.getExceptionTypes().size()),
+            new LoggingMetric("exceptionMethodCall", RESOLVE, "method call that throws the caught exceptions",
+                    ExceptionLoggingMetrics::getPresentableExceptionMethod),
+            new LoggingMetric("exceptionMethodPackage", RESOLVE, "package of the method that throws the caught exceptions",
+                    ExceptionLoggingMetrics::getExceptionMethodPackageName),
+            new LoggingMetric("exceptionMethodSource", RESOLVE, "project, library, or JDK",
+                    ExceptionLoggingMetrics::getPresentableExceptionMethodSource),
+            new LoggingMetric("exceptionMethodNum", RESOLVE, "number of methods that throw the caught exceptions",
+                    metrics -> metrics.getExceptionMethods().size()),
+            // the calls are followed into the method bodies of other files
+            new LoggingMetric("exceptionOrigin", RESOLVE, true,
+                    "method throwing the caught exception, through the calls of the try block",
+                    ExceptionLoggingMetrics::getPresentableExceptionOrigin),
+            new LoggingMetric("exceptionOriginDepth", RESOLVE, true,
+                    "number of calls between the try block and the statement throwing the caught exception",
+                    ExceptionLoggingMetrics::getExceptionOriginDepth),
+            new LoggingMetric("catchInLoop", SYNTACTIC, "if the containing catch block is in a loop",
+                    ExceptionLoggingMetrics::isCatchBlockWithInLoop),
+            new LoggingMetric("isLogInInnerLoop", SYNTACTIC,
+                    "if the logging statement is in a loop within the containing catch block",
+                    ExceptionLoggingMetrics::isLoggingStatementWithinInnerLoop),
+            new LoggingMetric("isLogInInnerBranch", RESOLVE,
+                    "if the logging statement is in a branch statement (excluding logging guard) within the containing catch block",
+                    ExceptionLoggingMetrics::isLoggingStatementWithinInnerBranch),
+            new LoggingMetric("isLogInInnerTryBlock", SYNTACTIC,
+                    "if the logging statement is in a try block within the containing catch block",
+                    ExceptionLoggingMetrics::isLoggingStatementWithinInnderTryBlock),
+            new LoggingMetric("throwInCatchBlock", SYNTACTIC, "does the catch block contain throw statements",
+                    metrics -> metrics.getNumThrowInCatchBlock() > 0),
+            new LoggingMetric("returnInCatchBlock", SYNTACTIC, "does the catch block contain return statements",
+                    metrics -> metrics.getNumReturnInCatchBlock() > 0),
+            new LoggingMetric("throwInTryBlock", SYNTACTIC, "does the try block contain throw statements",
+                    metrics -> metrics.getNumThrowInTryBlock() > 0),
+            new LoggingMetric("returnInTryBlock", SYNTACTIC, "does the try block contain return statements",
+                    metrics -> metrics.getNumReturnInTryBlock() > 0),
+            new LoggingMetric("numMethodCallsBeforeLogging", SYNTACTIC,
+                    "number of method calls in the containing catch block before the logging statement",
+                    metrics -> metrics.getNumMethodCallsBeforeAndAfterLogging()[0]),
+            new LoggingMetric("numMethodCallsAfterLogging", SYNTACTIC,
+                    "number of method calls in the containing catch block after the logging statement",
+                    metrics -> metrics.getNumMethodCallsBeforeAndAfterLogging()[1]),
+            new LoggingMetric("LOCBeforeLogging", SYNTACTIC,
+                    "lines of code in the containing catch block before the logging statement",
+                    metrics -> metrics.getLOCBeforeAndAfterLogging()[0]),
+            new LoggingMetric("LOCAfterLogging", SYNTACTIC,
+                    "lines of code in the containing catch block after the logging statement",
+                    metrics -> metrics.getLOCBeforeAndAfterLogging()[1]),
+            new LoggingMetric("numMethodCallsInTryBlock", SYNTACTIC, "number of method calls in the containing try block",
+                    ExceptionLoggingMetrics::getNumMethodCallsInTryBlock),
+            new LoggingMetric("LOCInTryBlock", SYNTACTIC, "LOC in the try block",
+                    ExceptionLoggingMetrics::getTryBlockLOC),
+            new LoggingMetric("LOCInFile", SYNTACTIC, "LOC in the file",
+                    ExceptionLoggingMetrics::getFileLOC),
+            new LoggingMetric("LOCInMethod", SYNTACTIC, "LOC in the containing method",
+                    ExceptionLoggingMetrics::getMethodLOC),
+            new LoggingMetric("numMethodCallsInMethod", SYNTACTIC, "number of method calls in the containing method",
+                    ExceptionLoggingMetrics::getNumMethodCallsInMethod),
+            new LoggingMetric("methodUsages", PROJECT_SEARCH, "number of usages of the containing method",
+                    ExceptionLoggingMetrics::getUsageNumOfContainingMethod),
+            new LoggingMetric("fanIn", PROJECT_SEARCH,
+                    "number of usages of the containing method and its super methods",
+                    ExceptionLoggingMetrics::getUsageNumOfContainingMethodAndSuperMethods)));
+
+    public static List<LoggingMetric> getAllMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * The metrics enabled in the settings, in the order of the exported columns
+     */
+    public static List<LoggingMetric> getEnabledMetrics() {
+        List<String> disabledMetrics = LoggingObserverSettings.getInstance().getDisabledMetrics();
+        List<LoggingMetric> enabledMetrics = new ArrayList<>();
+        for (LoggingMetric metric : METRICS) {
+            if (!disabledMetrics.contains(metric.getName())) {
+                enabledMetrics.add(metric);
+            }
+        }
+        return enabledMetrics;
+    }
+}
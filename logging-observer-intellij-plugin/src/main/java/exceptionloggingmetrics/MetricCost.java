@@ -0,0 +1,13 @@
+package exceptionloggingmetrics;
+
+/**
+ * How expensive a metric is to compute, from the cheapest to the most expensive
+ */
+public enum MetricCost {
+    // computed from the PSI tree of the containing file
+    SYNTACTIC,
+    // needs to resolve references or types, possibly loading other files
+    RESOLVE,
+    // searches the usages of an element in the whole project
+    PROJECT_SEARCH
+}
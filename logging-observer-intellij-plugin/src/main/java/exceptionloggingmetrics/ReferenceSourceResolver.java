@@ -0,0 +1,82 @@
+package exceptionloggingmetrics;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.*;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells whether an element comes from the project, a library or the JDK.
+ * All the files under a library or SDK root share the same source, so the verdict is memoized per root
+ * (e.g., per jar) until the project roots change.
+ */
+@Service(Service.Level.PROJECT)
+public final class ReferenceSourceResolver {
+    private final Project project;
+
+    public ReferenceSourceResolver(Project project) {
+        this.project = project;
+    }
+
+    public static ReferenceSourceResolver getInstance(Project project) {
+        return project.getService(ReferenceSourceResolver.class);
+    }
+
+    @NotNull
+    public ReferenceSource getReferenceSource(@Nullable PsiElement element) {
+        PsiFile file = element == null ? null : element.getContainingFile();
+        VirtualFile vf = file == null ? null : file.getVirtualFile();
+        return vf == null ? ReferenceSource.UNKNOWN : getReferenceSource(vf);
+    }
+
+    @NotNull
+    public ReferenceSource getReferenceSource(@NotNull VirtualFile vf) {
+        ProjectFileIndex projectFileIndex = ProjectFileIndex.getInstance(project);
+        if (!projectFileIndex.isInLibrary(vf)) {
+            return ReferenceSource.FROMPROJECT;
+        }
+
+        // the class root (e.g., the jar) or the source root (e.g., the sources jar) of the library or SDK
+        VirtualFile root = projectFileIndex.getClassRootForFile(vf);
+        if (root == null) {
+            root = projectFileIndex.getSourceRootForFile(vf);
+        }
+        if (root == null) {
+            return computeLibrarySource(vf);
+        }
+
+        Map<VirtualFile, ReferenceSource> sourcePerRoot = CachedValuesManager.getManager(project).getCachedValue(project,
+                () -> CachedValueProvider.Result.<Map<VirtualFile, ReferenceSource>>create(new ConcurrentHashMap<>(),
+                        ProjectRootManager.getInstance(project)));
+        return sourcePerRoot.computeIfAbsent(root, this::computeLibrarySource);
+    }
+
+    private ReferenceSource computeLibrarySource(VirtualFile fileOrRoot) {
+        boolean isInLibrary = false, isInJdk = false;
+        for (OrderEntry entry : ProjectFileIndex.getInstance(project).getOrderEntriesForFile(fileOrRoot)) {
+            if (entry instanceof LibraryOrderEntry) {
+                isInLibrary = true;
+            }
+            if (entry instanceof JdkOrderEntry) {
+                isInJdk = true;
+            }
+        }
+
+        if (isInJdk) {
+            return ReferenceSource.FROMJDK;
+        } else if (isInLibrary) {
+            return ReferenceSource.FROMLIBRARY;
+        } else {
+            return ReferenceSource.FROMPROJECT;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package exceptionloggingmetrics;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import typehierarchy.ExceptionTypeHierarchy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exceptions that can reach the catch sections of a try statement, computed in one pass over its try block:
+ * the exceptions thrown by the throw statements and declared by the called methods, each with the catch
+ * section that handles it.
+ * The flow is cached on the try statement until the PSI changes, so it is shared by all the catch sections
+ * of the try statement and all the logging statements inside them.
+ */
+public class TryExceptionFlow {
+    private final List<PsiCatchSection> catchSections;
+    private final PsiCodeBlock tryBlock;
+    // exception types caught by each catch section
+    private final List<List<PsiType>> caughtTypesPerCatch = new ArrayList<>();
+    // throw statements of the try block with the class of the thrown exception, in the order of the code
+    private final List<ThrowSite> throwSites = new ArrayList<>();
+    // method calls and then new expressions of the try block, in the order of the code
+    private final List<CallSite> callSites = new ArrayList<>();
+
+    private TryExceptionFlow(PsiTryStatement tryStatement) {
+        this.catchSections = Arrays.asList(tryStatement.getCatchSections());
+        this.tryBlock = tryStatement.getTryBlock();
+        for (PsiCatchSection catchSection : this.catchSections) {
+            this.caughtTypesPerCatch.add(ExceptionLoggingMetrics.extractExceptionTypesForCatchSection(catchSection));
+        }
+    }
+
+    public static TryExceptionFlow of(@NotNull PsiTryStatement tryStatement) {
+        return CachedValuesManager.getCachedValue(tryStatement,
+                () -> CachedValueProvider.Result.create(compute(tryStatement),
+                        PsiModificationTracker.getInstance(tryStatement.getProject())));
+    }
+
+    public List<PsiCatchSection> getCatchSections() { return this.catchSections; }
+    public List<ThrowSite> getThrowSites() { return this.throwSites; }
+    public List<CallSite> getCallSites() { return this.callSites; }
+
+    /**
+     * How an exception thrown at a site of the try block is handled (e.g., an exception thrown inside
+     * a method called at the site)
+     */
+    public ThrownType getHandling(@NotNull PsiType type, @NotNull PsiElement site) {
+        return getHandling(type, site, tryBlock, caughtTypesPerCatch,
+                ExceptionTypeHierarchy.getInstance(site.getProject()));
+    }
+
+    private static TryExceptionFlow compute(PsiTryStatement tryStatement) {
+        TryExceptionFlow flow = new TryExceptionFlow(tryStatement);
+        PsiCodeBlock tryBlock = flow.tryBlock;
+        if (tryBlock == null) {
+            return flow;
+        }
+
+        ExceptionTypeHierarchy hierarchy = ExceptionTypeHierarchy.getInstance(tryStatement.getProject());
+        List<List<PsiType>> caughtTypesPerCatch = flow.caughtTypesPerCatch;
+
+        for (PsiThrowStatement throwStatement : PsiTreeUtil.findChildrenOfType(tryBlock, PsiThrowStatement.class)) {
+            PsiNewExpression newExpr = PsiTreeUtil.findChildOfType(throwStatement, PsiNewExpression.class);
+            if (newExpr == null || newExpr.getClassReference() == null) {
+                continue;
+            }
+            PsiElement exClass = newExpr.getClassReference().resolve();
+            if (!(exClass instanceof PsiClass)) {
+                continue;
+            }
+            PsiType thrownType = JavaPsiFacade.getElementFactory(tryStatement.getProject()).createType((PsiClass) exClass);
+            flow.throwSites.add(new ThrowSite(throwStatement,
+                    getHandling(thrownType, throwStatement, tryBlock, caughtTypesPerCatch, hierarchy)));
+        }
+
+        List<PsiCallExpression> calls = new ArrayList<>();
+        calls.addAll(PsiTreeUtil.findChildrenOfType(tryBlock, PsiMethodCallExpression.class));
+        // new expressions (e.g., new LdapName(dn)) can also throw exceptions
+        calls.addAll(PsiTreeUtil.findChildrenOfType(tryBlock, PsiNewExpression.class));
+        for (PsiCallExpression call : calls) {
+            PsiMethod method = call.resolveMethod();
+            List<ThrownType> declaredTypes = new ArrayList<>();
+            if (method != null) {
+                for (PsiType throwsType : method.getThrowsList().getReferencedTypes()) {
+                    declaredTypes.add(getHandling(throwsType, call, tryBlock, caughtTypesPerCatch, hierarchy));
+                }
+            }
+            flow.callSites.add(new CallSite(call, method, declaredTypes));
+        }
+
+        return flow;
+    }
+
+    private static ThrownType getHandling(PsiType type, PsiElement site, PsiCodeBlock tryBlock,
+                                   List<List<PsiType>> caughtTypesPerCatch, ExceptionTypeHierarchy hierarchy) {
+        // catch sections of the try statements nested in the try block around the site
+        boolean caughtInside = false;
+        for (PsiTryStatement innerTry = PsiTreeUtil.getParentOfType(site, PsiTryStatement.class);
+             innerTry != null && PsiTreeUtil.isAncestor(tryBlock, innerTry, true) && !caughtInside;
+             innerTry = PsiTreeUtil.getParentOfType(innerTry, PsiTryStatement.class)) {
+            if (!PsiTreeUtil.isAncestor(innerTry.getTryBlock(), site, true)) {
+                continue; // the site is in a catch or finally block of the inner try statement
+            }
+            for (PsiCatchSection innerCatch : innerTry.getCatchSections()) {
+                if (catchesType(ExceptionLoggingMetrics.extractExceptionTypesForCatchSection(innerCatch), type, hierarchy)) {
+                    caughtInside = true;
+                    break;
+                }
+            }
+        }
+
+        // first catch section of the try statement able to catch the exception
+        int handlerIndex = -1;
+        for (int i = 0; i < caughtTypesPerCatch.size() && !caughtInside; i++) {
+            if (catchesType(caughtTypesPerCatch.get(i), type, hierarchy)) {
+                handlerIndex = i;
+                break;
+            }
+        }
+        return new ThrownType(type, caughtInside, handlerIndex);
+    }
+
+    private static boolean catchesType(List<PsiType> caughtTypes, PsiType type, ExceptionTypeHierarchy hierarchy) {
+        for (PsiType caughtType : caughtTypes) {
+            if (hierarchy.isSubType(type, caughtType, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An exception thrown or declared at a site of the try block
+     */
+    public static class ThrownType {
+        private final PsiType type;
+        private final boolean caughtInside;
+        private final int handlerIndex;
+
+        ThrownType(PsiType type, boolean caughtInside, int handlerIndex) {
+            this.type = type;
+            this.caughtInside = caughtInside;
+            this.handlerIndex = handlerIndex;
+        }
+
+        public PsiType getType() { return this.type; }
+
+        /**
+         * Whether the exception is caught by a try statement nested in the try block
+         */
+        public boolean isCaughtInside() { return this.caughtInside; }
+
+        /**
+         * Index of the catch section of the try statement that handles the exception,
+         * -1 if none does or if it is caught inside the try block
+         */
+        public int getHandlerIndex() { return this.handlerIndex; }
+
+        /**
+         * Whether the exception is caught before it reaches the catch section at the given index
+         */
+        public boolean isCaughtBefore(int catchIndex) {
+            return caughtInside || (handlerIndex >= 0 && handlerIndex < catchIndex);
+        }
+    }
+
+    public static class ThrowSite {
+        private final PsiThrowStatement throwStatement;
+        private final ThrownType thrownType;
+
+        ThrowSite(PsiThrowStatement throwStatement, ThrownType thrownType) {
+            this.throwStatement = throwStatement;
+            this.thrownType = thrownType;
+        }
+
+        public PsiThrowStatement getThrowStatement() { return this.throwStatement; }
+        public ThrownType getThrownType() { return this.thrownType; }
+    }
+
+    public static class CallSite {
+        private final PsiCallExpression call;
+        private final PsiMethod method;
+        private final List<ThrownType> declaredTypes;
+
+        CallSite(PsiCallExpression call, @Nullable PsiMethod method, List<ThrownType> declaredTypes) {
+            this.call = call;
+            this.method = method;
+            this.declaredTypes = Collections.unmodifiableList(declaredTypes);
+        }
+
+        public PsiCallExpression getCall() { return this.call; }
+
+        /**
+         * The called method, null if the call cannot be resolved
+         */
+        @Nullable public PsiMethod getMethod() { return this.method; }
+
+        /**
+         * Exceptions in the throws list of the called method
+         */
+        public List<ThrownType> getDeclaredTypes() { return this.declaredTypes; }
+    }
+}
@@ -0,0 +1,61 @@
+package exceptionorigin;
+
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An exception that can escape a method call, with the chain of calls leading to the method that throws it
+ */
+public class ExceptionOrigin {
+    private final PsiType type;
+    // from the called method to the method throwing the exception, empty if thrown in the try block itself
+    private final List<PsiMethod> callChain;
+    // the exception is only declared in the throws list of the last method of the chain
+    private final boolean declaredOnly;
+
+    public ExceptionOrigin(PsiType type, List<PsiMethod> callChain, boolean declaredOnly) {
+        this.type = type;
+        this.callChain = Collections.unmodifiableList(callChain);
+        this.declaredOnly = declaredOnly;
+    }
+
+    public PsiType getType() { return this.type; }
+    public List<PsiMethod> getCallChain() { return this.callChain; }
+    public boolean isDeclaredOnly() { return this.declaredOnly; }
+
+    /**
+     * Number of calls between the try block and the method throwing the exception
+     */
+    public int getDepth() { return this.callChain.size(); }
+
+    /**
+     * The method called in the try block, null if the exception is thrown in the try block itself
+     */
+    @Nullable
+    public PsiMethod getCalledMethod() {
+        return this.callChain.isEmpty() ? null : this.callChain.get(0);
+    }
+
+    /**
+     * The method throwing (or declaring) the exception, null if the exception is thrown in the try block itself
+     */
+    @Nullable
+    public PsiMethod getThrowingMethod() {
+        return this.callChain.isEmpty() ? null : this.callChain.get(this.callChain.size() - 1);
+    }
+
+    /**
+     * The same exception escaping from a call to the given method
+     */
+    ExceptionOrigin calledFrom(PsiMethod caller) {
+        List<PsiMethod> chain = new ArrayList<>(this.callChain.size() + 1);
+        chain.add(caller);
+        chain.addAll(this.callChain);
+        return new ExceptionOrigin(this.type, chain, this.declaredOnly);
+    }
+}
@@ -0,0 +1,193 @@
+package exceptionorigin;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+import exceptionloggingmetrics.ExceptionLoggingMetrics;
+import org.jetbrains.annotations.NotNull;
+import settings.LoggingObserverSettings;
+import typehierarchy.ExceptionTypeHierarchy;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exceptions that can escape a method, including the unchecked exceptions thrown by the methods it calls.
+ * The summary of a method holds the exceptions thrown by its throw statements and not caught in the method,
+ * those escaping from the methods it calls (followed up to the depth in the settings) and those declared
+ * in its throws list. Calls are resolved statically, overriding methods are not followed, and methods without
+ * a body (e.g., library methods) only contribute their throws list.
+ * Each method is analyzed once and the summaries are memoized for the project until the PSI changes.
+ */
+@Service(Service.Level.PROJECT)
+public final class ExceptionOriginAnalyzer {
+    // bound on the exceptions kept per method, the summaries of deep call graphs would grow quickly otherwise
+    private static final int MAX_ORIGINS_PER_METHOD = 50;
+
+    private final Project project;
+
+    public ExceptionOriginAnalyzer(Project project) {
+        this.project = project;
+    }
+
+    public static ExceptionOriginAnalyzer getInstance(Project project) {
+        return project.getService(ExceptionOriginAnalyzer.class);
+    }
+
+    /**
+     * Exceptions that can escape a call to the method, one per exception type: the ones thrown in the method
+     * bodies first (the closest first), then the ones only declared in throws lists. Must be called in a read action.
+     */
+    public List<ExceptionOrigin> getExceptionOrigins(@NotNull PsiMethod method) {
+        return getSummary(method, LoggingObserverSettings.getInstance().getExceptionOriginDepth(), getSummaries());
+    }
+
+    /**
+     * Summary of a method following the calls up to the given depth, 0 for the throws list only
+     */
+    private List<ExceptionOrigin> getSummary(PsiMethod method, int depth, Summaries summaries) {
+        Map<Integer, List<ExceptionOrigin>> summaryPerDepth =
+                summaries.summariesPerMethod.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        List<ExceptionOrigin> summary = summaryPerDepth.get(depth);
+        if (summary != null) {
+            return summary;
+        }
+
+        List<ExceptionOrigin> candidates = new ArrayList<>();
+        if (depth > 0) {
+            MethodFacts facts = summaries.factsPerMethod.get(method);
+            if (facts == null) {
+                facts = new MethodFacts(method);
+                summaries.factsPerMethod.putIfAbsent(method, facts);
+            }
+
+            for (PsiType thrownType : facts.thrownTypes) {
+                candidates.add(new ExceptionOrigin(thrownType, Collections.singletonList(method), false));
+            }
+            for (CallInMethod call : facts.calls) {
+                if (call.callee.equals(method)) {
+                    continue; // a recursive call throws nothing new
+                }
+                for (ExceptionOrigin calleeOrigin : getSummary(call.callee, depth - 1, summaries)) {
+                    if (!isCaughtInMethod(calleeOrigin.getType(), call.element, method)) {
+                        candidates.add(calleeOrigin.calledFrom(method));
+                    }
+                }
+            }
+        }
+        for (PsiClassType declaredType : method.getThrowsList().getReferencedTypes()) {
+            candidates.add(new ExceptionOrigin(declaredType, Collections.singletonList(method), true));
+        }
+
+        // the closest origin of each exception type is kept: the thrown ones by depth, then the declared ones
+        // (stable sort, so the origins at the same depth stay in the order of the method body)
+        candidates.sort(Comparator.comparing(ExceptionOrigin::isDeclaredOnly)
+                .thenComparingInt(ExceptionOrigin::getDepth));
+        Map<String, ExceptionOrigin> originsPerType = new LinkedHashMap<>();
+        for (ExceptionOrigin origin : candidates) {
+            if (originsPerType.size() >= MAX_ORIGINS_PER_METHOD) {
+                break;
+            }
+            originsPerType.putIfAbsent(origin.getType().getCanonicalText(), origin);
+        }
+
+        summary = Collections.unmodifiableList(new ArrayList<>(originsPerType.values()));
+        List<ExceptionOrigin> existing = summaryPerDepth.putIfAbsent(depth, summary);
+        return existing != null ? existing : summary;
+    }
+
+    /**
+     * Whether an exception thrown at a site of a method is caught by a try statement of the method
+     */
+    private boolean isCaughtInMethod(PsiType type, PsiElement site, PsiMethod method) {
+        ExceptionTypeHierarchy hierarchy = ExceptionTypeHierarchy.getInstance(project);
+        for (PsiTryStatement tryStatement = PsiTreeUtil.getParentOfType(site, PsiTryStatement.class, true, PsiMethod.class);
+             tryStatement != null;
+             tryStatement = PsiTreeUtil.getParentOfType(tryStatement, PsiTryStatement.class, true, PsiMethod.class)) {
+            if (!PsiTreeUtil.isAncestor(tryStatement.getTryBlock(), site, true)
+                    && !PsiTreeUtil.isAncestor(tryStatement.getResourceList(), site, true)) {
+                continue; // the site is in a catch or finally block of the try statement
+            }
+            for (PsiCatchSection catchSection : tryStatement.getCatchSections()) {
+                for (PsiType caughtType : ExceptionLoggingMetrics.extractExceptionTypesForCatchSection(catchSection)) {
+                    if (hierarchy.isSubType(type, caughtType, false)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private Summaries getSummaries() {
+        return CachedValuesManager.getManager(project).getCachedValue(project,
+                () -> CachedValueProvider.Result.create(new Summaries(),
+                        PsiModificationTracker.getInstance(project)));
+    }
+
+    private static class Summaries {
+        // the throw statements and calls of each method, collected once whatever the depth
+        private final Map<PsiMethod, MethodFacts> factsPerMethod = new ConcurrentHashMap<>();
+        // method -> depth -> summary
+        private final Map<PsiMethod, Map<Integer, List<ExceptionOrigin>>> summariesPerMethod = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The exceptions thrown by the throw statements of a method body and not caught in the method, and
+     * the resolved calls of the body. Lambdas and local or anonymous classes are skipped, their code
+     * does not run when the method is called.
+     */
+    private class MethodFacts {
+        private final List<PsiType> thrownTypes = new ArrayList<>();
+        private final List<CallInMethod> calls = new ArrayList<>();
+
+        MethodFacts(PsiMethod method) {
+            PsiCodeBlock body = method.getBody();
+            if (body == null) {
+                return;
+            }
+            body.accept(new JavaRecursiveElementWalkingVisitor() {
+                @Override
+                public void visitThrowStatement(@NotNull PsiThrowStatement statement) {
+                    PsiExpression exception = statement.getException();
+                    PsiType type = exception == null ? null : exception.getType();
+                    if (type != null && !isCaughtInMethod(type, statement, method)) {
+                        thrownTypes.add(type);
+                    }
+                    super.visitThrowStatement(statement);
+                }
+
+                @Override
+                public void visitCallExpression(@NotNull PsiCallExpression call) {
+                    PsiMethod callee = call.resolveMethod();
+                    if (callee != null) {
+                        calls.add(new CallInMethod(callee, call));
+                    }
+                    super.visitCallExpression(call);
+                }
+
+                @Override
+                public void visitLambdaExpression(@NotNull PsiLambdaExpression expression) {
+                }
+
+                @Override
+                public void visitClass(@NotNull PsiClass aClass) {
+                }
+            });
+        }
+    }
+
+    private static class CallInMethod {
+        private final PsiMethod callee;
+        private final PsiElement element;
+
+        CallInMethod(PsiMethod callee, PsiElement element) {
+            this.callee = callee;
+            this.element = element;
+        }
+    }
+}
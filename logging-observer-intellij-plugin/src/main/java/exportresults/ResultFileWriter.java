@@ -0,0 +1,82 @@
+package exportresults;
+
+import com.intellij.openapi.project.Project;
+import settings.LoggingObserverSettings;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Writes analysis results to a file row by row as they are produced, so the results of a project are never
+ * held in memory at once. The file is written through a buffered file channel and is optionally gzipped.
+ */
+public class ResultFileWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private int numRows = 0;
+
+    public ResultFileWriter(Path file, String header, boolean gzip) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+        try {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+            writer.write(header);
+            writer.newLine();
+        } catch (IOException | RuntimeException e) {
+            channel.close(); // the writer is not returned, nothing else closes the file
+            throw e;
+        }
+    }
+
+    /**
+     * Create a writer of the results of a project in the export directory of the settings,
+     * e.g., "project-logging-components.csv"
+     */
+    public static ResultFileWriter create(Project project, String resultName, String header) throws IOException {
+        return new ResultFileWriter(getExportFile(project, resultName), header,
+                LoggingObserverSettings.getInstance().isGzipExport());
+    }
+
+    /**
+     * File of the results of a project in the export directory of the settings
+     */
+    public static Path getExportFile(Project project, String resultName) {
+        LoggingObserverSettings settings = LoggingObserverSettings.getInstance();
+        String fileName = project.getName() + "-" + resultName + ".csv" + (settings.isGzipExport() ? ".gz" : "");
+        return settings.getExportPath().resolve(fileName);
+    }
+
+    public void writeRow(String row) throws IOException {
+        writer.write(row);
+        writer.newLine();
+        numRows++;
+    }
+
+    public Path getFile() { return this.file; }
+
+    /**
+     * Number of rows written, excluding the header
+     */
+    public int getNumRows() { return this.numRows; }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
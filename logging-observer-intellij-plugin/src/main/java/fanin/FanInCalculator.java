@@ -0,0 +1,235 @@
+package fanin;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.UsageSearchContext;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.NotNull;
+import scanengine.ProjectScanner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Number of usages (fan-in) of the methods containing logging statements, with or without the usages of
+ * their super methods.
+ * The usage counts of many methods are computed together by {@link #computeUsageCounts}: the project files
+ * that may call any of the methods are walked once and each call site whose name matches is resolved and
+ * counted. A method outside a batch is counted the same way on its own, so both paths agree. The counts are
+ * memoized until the PSI changes, so a method with several logging statements is only searched once.
+ */
+@Service(Service.Level.PROJECT)
+public final class FanInCalculator {
+    private static final Logger logger = Logger.getInstance(FanInCalculator.class);
+
+    private final Project project;
+
+    public FanInCalculator(Project project) {
+        this.project = project;
+    }
+
+    public static FanInCalculator getInstance(Project project) {
+        return project.getService(FanInCalculator.class);
+    }
+
+    /**
+     * Number of usages of a method. Must be called in a read action.
+     */
+    public int getUsageCount(@NotNull PsiMethod method) {
+        Map<PsiMethod, Integer> usageCounts = getUsageCounts();
+        Integer count = usageCounts.get(method);
+        if (count == null) {
+            // not computed in a batch, count the call sites of this method alone, as a batch of one method would
+            Map<String, Set<PsiMethod>> targetsPerName =
+                    Collections.singletonMap(getCalledName(method), Collections.singleton(method));
+            Map<PsiMethod, Integer> counts = new HashMap<>();
+            for (VirtualFile file : findCandidateFiles(targetsPerName.keySet())) {
+                countCallSites(file, targetsPerName).forEach((m, c) -> counts.merge(m, c, Integer::sum));
+            }
+            count = counts.getOrDefault(method, 0);
+            usageCounts.put(method, count);
+        }
+        return count;
+    }
+
+    /**
+     * Number of usages of a method and of the methods it overrides. Must be called in a read action.
+     */
+    public int getUsageCountWithSuperMethods(@NotNull PsiMethod method) {
+        int count = getUsageCount(method);
+        for (PsiMethod superMethod : method.findSuperMethods()) {
+            count += getUsageCount(superMethod);
+        }
+        return count;
+    }
+
+    /**
+     * Count the usages of the methods (and of the methods they override) in one pass over the project files
+     * that mention their names. Only the call sites (calls, constructor calls and method references) in
+     * the project are counted. Must be called from a background thread, outside of a read action.
+     */
+    public void computeUsageCounts(Collection<PsiMethod> methods, boolean includeSuperMethods,
+                                   ProgressIndicator indicator) {
+        // the counts are published to the map of the PSI the targets were collected from: if the PSI changes
+        // during the walk, the map is dropped with its cached value and the counts of the old PSI with it
+        Map<PsiMethod, Integer> usageCounts = ProjectScanner.computeInReadAction(project, this::getUsageCounts);
+
+        // the methods not counted yet, grouped by the name they are called with
+        Map<String, Set<PsiMethod>> targetsPerName = ProjectScanner.computeInReadAction(project, () -> {
+            if (usageCounts != getUsageCounts()) {
+                return Collections.<String, Set<PsiMethod>>emptyMap(); // the PSI has changed in between
+            }
+            Map<String, Set<PsiMethod>> targets = new HashMap<>();
+            for (PsiMethod method : methods) {
+                if (!method.isValid()) continue;
+                List<PsiMethod> hierarchy = new ArrayList<>();
+                hierarchy.add(method);
+                if (includeSuperMethods) {
+                    hierarchy.addAll(Arrays.asList(method.findSuperMethods()));
+                }
+                for (PsiMethod m : hierarchy) {
+                    if (!usageCounts.containsKey(m)) {
+                        targets.computeIfAbsent(getCalledName(m), name -> new HashSet<>()).add(m);
+                    }
+                }
+            }
+            return targets;
+        });
+        if (targetsPerName.isEmpty()) {
+            return;
+        }
+
+        indicator.setText("Counting the usages of " + targetsPerName.size() + " method names");
+        Set<VirtualFile> candidateFiles = ProjectScanner.computeInReadAction(project, () -> {
+            indicator.checkCanceled();
+            return findCandidateFiles(targetsPerName.keySet());
+        });
+
+        Map<PsiMethod, Integer> counts = new HashMap<>();
+        int processedFiles = 0;
+        for (VirtualFile file : candidateFiles) {
+            indicator.checkCanceled();
+            indicator.setFraction((double) processedFiles++ / candidateFiles.size());
+            // counted per file, as the read action is restarted if a write action interrupts it
+            Map<PsiMethod, Integer> fileCounts =
+                    ProjectScanner.computeInReadAction(project, () -> countCallSites(file, targetsPerName));
+            fileCounts.forEach((method, count) -> counts.merge(method, count, Integer::sum));
+        }
+
+        for (Set<PsiMethod> targets : targetsPerName.values()) {
+            for (PsiMethod target : targets) {
+                usageCounts.putIfAbsent(target, counts.getOrDefault(target, 0));
+            }
+        }
+        logger.info("Counted the usages of " + counts.size() + " methods in " + candidateFiles.size() + " files");
+    }
+
+    /**
+     * The project files mentioning any of the names in code. Must be called in a read action.
+     */
+    private Set<VirtualFile> findCandidateFiles(Collection<String> names) {
+        Set<VirtualFile> files = new LinkedHashSet<>();
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        PsiSearchHelper searchHelper = PsiSearchHelper.getInstance(project);
+        for (String name : names) {
+            searchHelper.processCandidateFilesForText(scope, UsageSearchContext.IN_CODE, true, name, file -> {
+                files.add(file);
+                return true;
+            });
+        }
+        return files;
+    }
+
+    /**
+     * Number of call sites of each target method in a file. Must be called in a read action.
+     */
+    private Map<PsiMethod, Integer> countCallSites(VirtualFile file, Map<String, Set<PsiMethod>> targetsPerName) {
+        Map<PsiMethod, Integer> callSiteCounts = new HashMap<>();
+        PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (psiFile instanceof PsiJavaFile) {
+            psiFile.accept(new CallSiteCounter(targetsPerName, callSiteCounts));
+        }
+        return callSiteCounts;
+    }
+
+    private Map<PsiMethod, Integer> getUsageCounts() {
+        return CachedValuesManager.getManager(project).getCachedValue(project,
+                () -> CachedValueProvider.Result.<Map<PsiMethod, Integer>>create(new ConcurrentHashMap<>(),
+                        PsiModificationTracker.getInstance(project)));
+    }
+
+    /**
+     * Name of a method at its call sites: the class name for a constructor
+     */
+    private static String getCalledName(PsiMethod method) {
+        if (method.isConstructor() && method.getContainingClass() != null
+                && method.getContainingClass().getName() != null) {
+            return method.getContainingClass().getName();
+        }
+        return method.getName();
+    }
+
+    private static class CallSiteCounter extends JavaRecursiveElementWalkingVisitor {
+        private final Map<String, Set<PsiMethod>> targetsPerName;
+        private final Map<PsiMethod, Integer> counts;
+
+        CallSiteCounter(Map<String, Set<PsiMethod>> targetsPerName, Map<PsiMethod, Integer> counts) {
+            this.targetsPerName = targetsPerName;
+            this.counts = counts;
+        }
+
+        @Override
+        public void visitCallExpression(@NotNull PsiCallExpression call) {
+            String name = null;
+            if (call instanceof PsiMethodCallExpression) {
+                name = ((PsiMethodCallExpression) call).getMethodExpression().getReferenceName();
+                if ("super".equals(name) || "this".equals(name)) {
+                    PsiMethod constructor = call.resolveMethod();
+                    name = constructor == null ? null : getCalledName(constructor);
+                }
+            } else if (call instanceof PsiNewExpression) {
+                PsiJavaCodeReferenceElement classReference = ((PsiNewExpression) call).getClassOrAnonymousClassReference();
+                name = classReference == null ? null : classReference.getReferenceName();
+            }
+            countCallSite(name, call::resolveMethod);
+            super.visitCallExpression(call);
+        }
+
+        @Override
+        public void visitEnumConstant(@NotNull PsiEnumConstant enumConstant) {
+            PsiClass enumClass = enumConstant.getContainingClass();
+            countCallSite(enumClass == null ? null : enumClass.getName(), enumConstant::resolveMethod);
+            super.visitEnumConstant(enumConstant);
+        }
+
+        @Override
+        public void visitMethodReferenceExpression(@NotNull PsiMethodReferenceExpression expression) {
+            countCallSite(expression.getReferenceName(), () -> {
+                PsiElement resolved = expression.resolve();
+                return resolved instanceof PsiMethod ? (PsiMethod) resolved : null;
+            });
+            super.visitMethodReferenceExpression(expression);
+        }
+
+        private void countCallSite(String name, Supplier<PsiMethod> resolver) {
+            // only the call sites with the name of a target are resolved
+            Set<PsiMethod> targets = name == null ? null : targetsPerName.get(name);
+            if (targets == null) {
+                return;
+            }
+            PsiMethod method = resolver.get();
+            if (method != null && targets.contains(method)) {
+                counts.merge(method, 1, Integer::sum);
+            }
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package findelements;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.usageView.UsageInfo;
 import com.intellij.usages.*;
 
 import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
+import scanengine.LoggingStatementRecord;
+import settings.LoggingObserverSettings;
 
+import javax.swing.*;
+import java.awt.event.ActionEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class FindElementsUtils {
 
@@ -36,6 +43,55 @@ public class FindElementsUtils {
 
         // logger.info("usage size: " + usages.size());
 
+        showUsagesInFindToolWindow(project, usages);
+    }
+
+    /**
+     * Search logging statements in the background and stream them into the find tool window as they are found.
+     * At most a page of logging statements is shown at first (see {@link LoggingObserverSettings}),
+     * the others are appended with the "Load More" button of the find tool window.
+     * @param onSearchFinished called on the EDT with all the logging statements, unless the search is cancelled
+     */
+    public static void searchAndShowLoggingStatements(Project project, String tabText,
+                                                      LoggingStatementUsageSearcher.Finder finder,
+                                                      Consumer<List<LoggingStatementRecord>> onSearchFinished) {
+        LoggingStatementUsageSearcher searcher = new LoggingStatementUsageSearcher(project, finder,
+                LoggingObserverSettings.getInstance().getFindWindowPageSize());
+
+        UsageViewPresentation presentation = new UsageViewPresentation();
+        presentation.setTabName("Search result");
+        presentation.setTabText(tabText);
+        presentation.setToolwindowTitle("Search result");
+
+        UsageViewManager.getInstance(project).searchAndShowUsages(UsageTarget.EMPTY_ARRAY, () -> searcher,
+                true, true, presentation, new UsageViewManager.UsageViewStateListener() {
+                    @Override
+                    public void usageViewCreated(@NotNull UsageView usageView) {
+                    }
+
+                    @Override
+                    public void findingUsagesFinished(UsageView usageView) {
+                        ApplicationManager.getApplication().invokeLater(() -> {
+                            if (usageView != null && searcher.hasMore()) {
+                                usageView.addButtonToLowerPane(new AbstractAction("Load More") {
+                                    @Override
+                                    public void actionPerformed(ActionEvent e) {
+                                        // disabled while the page is loading, and for good after the last page
+                                        setEnabled(false);
+                                        searcher.loadMore(usageView, () -> setEnabled(searcher.hasMore()));
+                                    }
+                                });
+                            }
+                            List<LoggingStatementRecord> loggingStatements = searcher.getLoggingStatements();
+                            if (loggingStatements != null) {
+                                onSearchFinished.accept(loggingStatements);
+                            }
+                        });
+                    }
+                });
+    }
+
+    private static void showUsagesInFindToolWindow(Project project, List<Usage> usages) {
         UsageViewPresentation presentation = new UsageViewPresentation();
         presentation.setTabName("Search result");
         presentation.setTabText("Found " + usages.size() + " instances");
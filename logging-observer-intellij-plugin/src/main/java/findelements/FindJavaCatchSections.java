@@ -4,19 +4,18 @@ import catchmetrics.CatchSectionLoggingInfo;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentIterator;
-import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
 import org.slf4j.LoggerFactory;
+import scanengine.JavaFileFacts;
+import scanengine.ProjectScanner;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,31 +30,51 @@ public class FindJavaCatchSections extends AnAction {
         String projectName = project.getName();
         logger.info("Start to find Java catch sections in project " + projectName);
 
-        List<PsiCatchSection> psiCatchSections = findCatchSectionsInJavaProject(project);
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Searching catch sections", true) {
+            private List<PsiCatchSection> psiCatchSections = Collections.emptyList();
 
-        /*
-        StringBuilder catchSectionsStr = new StringBuilder();
-        catchSectionsStr.append("Catch sections in Project " + project.getName() + ":\n");
-
-        for (PsiCatchSection catchSection : psiCatchSections) {
-            catchSectionsStr.append(catchSection.getCatchType().getCanonicalText()).append("\n");
-        }
-        logger.info(catchSectionsStr.toString());
-        */
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                psiCatchSections = findCatchSectionsInJavaProject(project, indicator);
 
-        StringBuilder catchInfoStr = new StringBuilder();
-        catchInfoStr.append(CatchSectionLoggingInfo.getCatchSectionLoggingInfoHeader()).append("\n");
+                /*
+                StringBuilder catchSectionsStr = new StringBuilder();
+                catchSectionsStr.append("Catch sections in Project " + project.getName() + ":\n");
 
-        for(PsiCatchSection catchSection : psiCatchSections) {
-            CatchSectionLoggingInfo catchLogInfo = new CatchSectionLoggingInfo(catchSection);
-            catchInfoStr.append(catchLogInfo.getCatchSectionLoggingInfo()).append("\n");
-        }
+                for (PsiCatchSection catchSection : psiCatchSections) {
+                    catchSectionsStr.append(catchSection.getCatchType().getCanonicalText()).append("\n");
+                }
+                logger.info(catchSectionsStr.toString());
+                */
+
+                indicator.setText("Analyzing catch sections");
+                StringBuilder catchInfoStr = new StringBuilder();
+                catchInfoStr.append(CatchSectionLoggingInfo.getCatchSectionLoggingInfoHeader()).append("\n");
+
+                for (int i = 0; i < psiCatchSections.size(); i++) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) i / psiCatchSections.size());
+
+                    PsiCatchSection catchSection = psiCatchSections.get(i);
+                    String catchLogInfo = ProjectScanner.computeInReadAction(project,
+                            () -> catchSection.isValid() ?
+                                    new CatchSectionLoggingInfo(catchSection).getCatchSectionLoggingInfo() : null);
+                    if (catchLogInfo != null) {
+                        catchInfoStr.append(catchLogInfo).append("\n");
+                    }
+                }
 
-        logger.info("Catch section log info for project " + projectName + ":\n" + catchInfoStr);
+                logger.info("Catch section log info for project " + projectName + ":\n" + catchInfoStr);
+            }
 
-        // list all the searched items in the find tool window view
-        FindElementsUtils.listPsiElementsInFindToolWindow(project,
-                psiCatchSections.stream().map(e -> (PsiElement)e).collect(Collectors.toList()));
+            @Override
+            public void onSuccess() {
+                // list all the searched items in the find tool window view
+                FindElementsUtils.listPsiElementsInFindToolWindow(project,
+                        psiCatchSections.stream().filter(PsiElement::isValid).map(e -> (PsiElement)e)
+                                .collect(Collectors.toList()));
+            }
+        });
     }
 
     @Override
@@ -65,34 +84,12 @@ public class FindJavaCatchSections extends AnAction {
         event.getPresentation().setVisible(visibility);
     }
 
-    public static List<PsiCatchSection> findCatchSectionsInJavaProject(Project project) {
-        List<PsiCatchSection> catchSections = new ArrayList<>();
+    public static List<PsiCatchSection> findCatchSectionsInJavaProject(Project project, ProgressIndicator indicator) {
+        indicator.setText("Searching catch sections");
+        List<VirtualFile> javaFiles = ProjectScanner.collectJavaSourceFiles(project);
 
-        ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
-        projectFileIndex.iterateContent(new ContentIterator() {
-            @Override
-            public boolean processFile(VirtualFile fileOrDir) {
-                if (!fileOrDir.isDirectory() && projectFileIndex.isUnderSourceRootOfType(fileOrDir,
-                        JavaModuleSourceRootTypes.SOURCES)) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(fileOrDir);
-                    if (!(psiFile instanceof PsiJavaFile)) {
-                        return true; // skip non-Java files
-                    }
-                    String fileName = psiFile.getName();
-                    if (fileName.matches(".*Test\\.java")) {
-                        return true; // skip test files
-                    }
-
-                    Collection<PsiCatchSection> catchSectionsInFile = PsiTreeUtil.findChildrenOfType(psiFile, PsiCatchSection.class);
-                    if (catchSectionsInFile.size() == 0) {
-                        return true;
-                    }
-
-                    catchSections.addAll(catchSectionsInFile);
-                }
-                return true;
-            }
-        });
+        List<PsiCatchSection> catchSections = ProjectScanner.scanFiles(project, javaFiles, indicator,
+                psiFile -> JavaFileFacts.of(psiFile).getCatchSections());
 
         logger.info("The number of Catch sections is: " + catchSections.size());
 
@@ -3,20 +3,18 @@ package findelements;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentIterator;
-import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiJavaFile;
-import com.intellij.psi.PsiManager;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
 import org.slf4j.LoggerFactory;
+import scanengine.ProjectScanner;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,19 +29,30 @@ public class FindJavaSourceFiles extends AnAction {
         String projectName = project.getName();
         logger.info("Start to find Java source files in project " + projectName);
 
-        List<PsiFile> psiFiles = findJavaSourceFilesInProject(project);
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Searching Java source files", true) {
+            private List<PsiFile> psiFiles = Collections.emptyList();
 
-        StringBuilder files = new StringBuilder();
-        files.append("Files in Project " + project.getName() + ":\n");
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                psiFiles = findJavaSourceFilesInProject(project, indicator);
+
+                StringBuilder files = new StringBuilder();
+                files.append("Files in Project " + project.getName() + ":\n");
 
-        for (PsiFile file : psiFiles) {
-            files.append(file.getName()).append("\n");
-        }
-        logger.info(files.toString());
+                for (PsiFile file : psiFiles) {
+                    files.append(file.getName()).append("\n");
+                }
+                logger.info(files.toString());
+            }
 
-        // list the searched items in the find tool window view
-        FindElementsUtils.listPsiElementsInFindToolWindow(project,
-                psiFiles.stream().map(e -> (PsiElement)e).collect(Collectors.toList()));
+            @Override
+            public void onSuccess() {
+                // list the searched items in the find tool window view
+                FindElementsUtils.listPsiElementsInFindToolWindow(project,
+                        psiFiles.stream().filter(PsiElement::isValid).map(e -> (PsiElement)e)
+                                .collect(Collectors.toList()));
+            }
+        });
     }
 
     @Override
@@ -53,30 +62,12 @@ public class FindJavaSourceFiles extends AnAction {
         event.getPresentation().setVisible(visibility);
     }
 
-    public static List<PsiFile> findJavaSourceFilesInProject(Project project) {
-        List<PsiFile> psiFiles = new ArrayList<>();
+    public static List<PsiFile> findJavaSourceFilesInProject(Project project, ProgressIndicator indicator) {
+        indicator.setText("Searching Java source files");
+        List<VirtualFile> javaFiles = ProjectScanner.collectJavaSourceFiles(project);
 
-        ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
-        projectFileIndex.iterateContent(new ContentIterator() {
-            @Override
-            public boolean processFile(VirtualFile fileOrDir) {
-                if (!fileOrDir.isDirectory() && projectFileIndex.isUnderSourceRootOfType(fileOrDir,
-                        JavaModuleSourceRootTypes.SOURCES)) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(fileOrDir);
-                    if (!(psiFile instanceof PsiJavaFile)) {
-                        return true; // skip non-Java files
-                    }
-                    String fileName = psiFile.getName();
-                    if (fileName.matches(".*Test\\.java")) {
-                        return true; // skip test files
-                    }
-
-                    psiFiles.add(psiFile);
-
-                }
-                return true;
-            }
-        });
+        List<PsiFile> psiFiles = ProjectScanner.scanFiles(project, javaFiles, indicator,
+                psiFile -> Collections.singletonList(psiFile));
 
         logger.info("The number of Java source files is: " + psiFiles.size());
 
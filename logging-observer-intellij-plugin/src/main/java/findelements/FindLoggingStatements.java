@@ -1,23 +1,35 @@
 package findelements;
 
+import analysiscache.AnalysisKind;
+import analysiscache.FileAnalysisCache;
+import exportresults.ResultFileWriter;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentIterator;
-import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiTreeUtil;
+import loggingcomponents.LogTemplateDictionary;
 import loggingcomponents.LoggingComponents;
+import loggingindex.LoggingCallSite;
+import loggingindex.LoggingCallSiteIndex;
+import loggingmatcher.LoggingCallMatcher;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
 import org.slf4j.LoggerFactory;
+import scanengine.LoggingStatementRecord;
+import scanengine.ProjectScanner;
+import settings.LoggingObserverSettings;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class FindLoggingStatements extends AnAction {
@@ -32,37 +44,53 @@ public class FindLoggingStatements extends AnAction {
         String projectName = project.getName();
         logger.info("Start to find logging statements in project " + projectName);
 
-        // find all logging statements in the project
-        List<PsiMethodCallExpression> loggingStatements = findLoggingStatementsInFiles(project);
-
-        StringBuilder loggingStatementsStr = new StringBuilder();
-
-        /*
-        loggingStatementsStr.append("Logging statements in Project " + project.getName() + ":\n");
-
-        for (PsiMethodCallExpression loggingStatement : loggingStatements) {
-            loggingStatementsStr.append(loggingStatement.getText()).append("\n");
-        }
-
-        logger.info(loggingStatementsStr.toString());
-       */
+        // the logging statements are listed in the find tool window as they are found
+        FindElementsUtils.searchAndShowLoggingStatements(project, "Logging statements",
+                (indicator, fileResultsConsumer) -> findLoggingStatementsInFiles(project, indicator, fileResultsConsumer),
+                loggingStatements -> analyzeLoggingComponents(project, loggingStatements));
+    }
 
-        // get the logging components of each logging statement
+    private static void analyzeLoggingComponents(Project project, List<LoggingStatementRecord> loggingStatements) {
+        String projectName = project.getName();
 
-        loggingStatementsStr.append(LoggingComponents.getLogComponentsHeader()).append("\n");
-        for (PsiMethodCallExpression log : loggingStatements) {
-            // get the components of the logging statement
-            LoggingComponents metrics = new LoggingComponents(log);
-            //loggingStatementsStr.append("Method:").append("\n").append(metrics.getContainingMethod()).append("\n");
-            //loggingStatementsStr.append("Logging:").append("\n").append(metrics.getLogBody()).append("\n\n");
-            loggingStatementsStr.append(metrics.getLogComponents()).append("\n");
-        }
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Analyzing logging components", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                /*
+                loggingStatementsStr.append("Logging statements in Project " + project.getName() + ":\n");
 
-        logger.info("Logging components for project " + projectName + ":\n" + loggingStatementsStr);
+                for (PsiMethodCallExpression loggingStatement : loggingStatements) {
+                    loggingStatementsStr.append(loggingStatement.getText()).append("\n");
+                }
 
-        // list the logging statements in the find tool window view
-        FindElementsUtils.listPsiElementsInFindToolWindow(project,
-                loggingStatements.stream().map(e -> (PsiElement)e).collect(Collectors.toList()));
+                logger.info(loggingStatementsStr.toString());
+               */
+
+                // get the logging components of each logging statement and stream them to the export file
+                indicator.setText("Analyzing logging components");
+                LoggingObserverSettings settings = LoggingObserverSettings.getInstance();
+                // with template IDs, each distinct log string is written once to a separate dictionary file
+                LogTemplateDictionary dictionary = settings.isExportTemplateIds() ? new LogTemplateDictionary() : null;
+                try (ResultFileWriter writer = ResultFileWriter.create(project, "logging-components",
+                        LoggingComponents.getLogComponentsHeader(dictionary != null))) {
+                    // the components of the files that have not changed since the last run are cached
+                    FileAnalysisCache.getInstance(project).processRecords(loggingStatements,
+                            AnalysisKind.LOGGING_COMPONENTS, indicator, record -> writer.writeRow(dictionary == null
+                                    ? AnalysisKind.LOGGING_COMPONENTS.getRow(record)
+                                    : LoggingComponents.toTemplateIdRow(record.getColumns(), dictionary)));
+                    logger.info("Logging components for project " + projectName + " (" + writer.getNumRows() +
+                            " logging statements) are written to " + writer.getFile());
+                    if (dictionary != null) {
+                        Path dictionaryFile = ResultFileWriter.getExportFile(project, "log-templates");
+                        dictionary.write(dictionaryFile, settings.isGzipExport());
+                        logger.info(dictionary.getNumTemplates() + " distinct log templates (" +
+                                dictionary.getNumOccurrences() + " occurrences) are written to " + dictionaryFile);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to export the logging components for project " + projectName, e);
+                }
+            }
+        });
     }
 
     @Override
@@ -72,41 +100,74 @@ public class FindLoggingStatements extends AnAction {
         event.getPresentation().setVisible(visibility);
     }
 
-    public static List<PsiMethodCallExpression> findLoggingStatementsInFiles(Project project) {
-        List<PsiMethodCallExpression> loggingStatements = new ArrayList<>();
+    public static List<LoggingStatementRecord> findLoggingStatementsInFiles(Project project,
+                                                                            ProgressIndicator indicator) {
+        return findLoggingStatementsInFiles(project, indicator, fileResults -> {});
+    }
 
-        // Pattern for matching logging statements
-        Pattern pLog = Pattern.compile(".*log.*\\.(trace|debug|info|warn|error|fatal)", Pattern.CASE_INSENSITIVE);
+    /**
+     * Find all the logging statements of a project
+     * @param fileResultsConsumer receives the logging statements of each file as soon as the file is scanned
+     */
+    public static List<LoggingStatementRecord> findLoggingStatementsInFiles(
+            Project project, ProgressIndicator indicator, Consumer<List<LoggingStatementRecord>> fileResultsConsumer) {
+        indicator.setText("Searching logging statements");
+        List<VirtualFile> javaFiles = ProjectScanner.collectJavaSourceFiles(project);
+
+        // look up the logging call site index first, only the files with logging statements are loaded as PSI
+        List<VirtualFile> filesWithLogs = ProjectScanner.computeInReadAction(project,
+                () -> javaFiles.stream()
+                        .filter(file -> !LoggingCallSiteIndex.getCallSites(project, file).isEmpty())
+                        .collect(Collectors.toList()));
+
+        // the records are built from the index entries, the PSI is only used to check the logger types
+        List<LoggingStatementRecord> loggingStatements = ProjectScanner.scanFiles(project, filesWithLogs, indicator,
+                psiFile -> findIndexedLoggingStatements(project, psiFile), fileResultsConsumer);
 
-        ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
-        projectFileIndex.iterateContent(new ContentIterator() {
-            @Override
-            public boolean processFile(VirtualFile fileOrDir) {
-                if (!fileOrDir.isDirectory() && projectFileIndex.isUnderSourceRootOfType(fileOrDir,
-                        JavaModuleSourceRootTypes.SOURCES)) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(fileOrDir);
-                    if (!(psiFile instanceof PsiJavaFile)) {
-                        return true; // skip non-Java files
-                    }
-                    String fileName = psiFile.getName();
-                    if (fileName.matches(".*Test\\.java")) {
-                        return true; // skip test files
-                    }
+        logger.info("The number of identified logging statements is " + loggingStatements.size());
 
-                    PsiTreeUtil.findChildrenOfType(psiFile, PsiMethodCallExpression.class).forEach(m -> {
-                        if (pLog.matcher(m.getMethodExpression().getText()).matches()) {
-                            loggingStatements.add(m);
-                            //logger.info("psiFile's child PsiMethodCallExpression matching log pattern: " + m.getMethodExpression().getText());
-                        }
-                    });
+        return loggingStatements;
+    }
 
+    /**
+     * The logging statements of a file, recorded from the call sites of the logging call site index.
+     * The index holds syntactic candidates: the type of the logger is checked on the first call site of each
+     * distinct qualifier of the file (e.g., "LOG") and the verdict applies to its other call sites.
+     */
+    private static List<LoggingStatementRecord> findIndexedLoggingStatements(Project project, PsiFile psiFile) {
+        List<LoggingStatementRecord> loggingStatements = new ArrayList<>();
+        LoggingCallMatcher loggingCallMatcher = LoggingCallMatcher.getInstance(project);
+        Map<String, Boolean> qualifierVerdicts = new HashMap<>();
+
+        for (LoggingCallSite callSite : LoggingCallSiteIndex.getCallSites(project, psiFile.getVirtualFile())) {
+            Boolean isLoggingCall = qualifierVerdicts.get(callSite.getQualifier());
+            if (isLoggingCall == null) {
+                PsiMethodCallExpression methodCall = findCall(psiFile, callSite);
+                if (methodCall == null) {
+                    continue; // the index is out of date for this file
                 }
-                return true;
+                isLoggingCall = loggingCallMatcher.isLoggingCall(methodCall);
+                qualifierVerdicts.put(callSite.getQualifier(), isLoggingCall);
             }
-        });
-
-        logger.info("The number of identified logging statements is " + loggingStatements.size());
+            if (isLoggingCall) {
+                loggingStatements.add(callSite.toRecord(psiFile.getVirtualFile()));
+            }
+        }
 
         return loggingStatements;
     }
+
+    /**
+     * The method call of an indexed call site, null if the index is out of date for the file
+     */
+    private static PsiMethodCallExpression findCall(PsiFile psiFile, LoggingCallSite callSite) {
+        PsiElement nameElement = psiFile.findElementAt(callSite.getNameOffset());
+        if (nameElement == null || !(nameElement.getParent() instanceof PsiReferenceExpression)) {
+            return null;
+        }
+        PsiElement methodCall = nameElement.getParent().getParent();
+        return methodCall instanceof PsiMethodCallExpression
+                && methodCall.getTextRange().getStartOffset() == callSite.getStartOffset()
+                ? (PsiMethodCallExpression) methodCall : null;
+    }
 }
@@ -1,24 +1,28 @@
 package findelements;
 
+import analysiscache.AnalysisKind;
+import analysiscache.FileAnalysisCache;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.roots.ContentIterator;
-import com.intellij.openapi.roots.ProjectFileIndex;
-import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import com.intellij.psi.util.PsiTreeUtil;
 import exceptionloggingmetrics.ExceptionLoggingMetrics;
+import exportresults.ResultFileWriter;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
 import org.slf4j.LoggerFactory;
+import scanengine.JavaFileFacts;
+import scanengine.LoggerWordFilter;
+import scanengine.LoggingStatementRecord;
+import scanengine.ProjectScanner;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.io.IOException;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class FindLoggingStatementsInCatchSections extends AnAction {
@@ -32,30 +36,44 @@ public class FindLoggingStatementsInCatchSections extends AnAction {
         String projectName = project.getName();
         logger.info("Start to find logging statements in catch sections in project " + projectName);
 
-        // find exception logging statements in the project
-        List<PsiMethodCallExpression> loggingStatements = findLoggingStatementsInCatchSections(project);
-
-        StringBuilder loggingStatementsStr = new StringBuilder();
-
-        /*
-        loggingStatementsStr.append("Logging statements in catch sections in Project " + project.getName() + ":\n");
+        // the logging statements are listed in the find tool window as they are found
+        FindElementsUtils.searchAndShowLoggingStatements(project, "Exception logging statements",
+                (indicator, fileResultsConsumer) ->
+                        findLoggingStatementsInCatchSections(project, indicator, fileResultsConsumer),
+                loggingStatements -> analyzeExceptionLoggingMetrics(project, loggingStatements));
+    }
 
-        for (PsiMethodCallExpression loggingStatement : loggingStatements) {
-            loggingStatementsStr.append(loggingStatement.getText()).append("\n");
-        }
-        logger.info(loggingStatementsStr.toString());
-        */
+    private static void analyzeExceptionLoggingMetrics(Project project,
+                                                       List<LoggingStatementRecord> loggingStatements) {
+        String projectName = project.getName();
 
-        loggingStatementsStr.append(ExceptionLoggingMetrics.getLoggingMetricsHeader()).append(("\n"));
-        for (PsiMethodCallExpression log : loggingStatements) {
-            ExceptionLoggingMetrics metrics = new ExceptionLoggingMetrics(log);
-            loggingStatementsStr.append(metrics.getLoggingMetrics()).append("\n");
-        }
-        logger.info("Exception logging metrics for project " + projectName + ": \n" + loggingStatementsStr);
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Analyzing exception logging metrics", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                /*
+                loggingStatementsStr.append("Logging statements in catch sections in Project " + project.getName() + ":\n");
 
-        // list the logging statements in the find tool window view
-        FindElementsUtils.listPsiElementsInFindToolWindow(project,
-                loggingStatements.stream().map(e -> (PsiElement)e).collect(Collectors.toList()));
+                for (PsiMethodCallExpression loggingStatement : loggingStatements) {
+                    loggingStatementsStr.append(loggingStatement.getText()).append("\n");
+                }
+                logger.info(loggingStatementsStr.toString());
+                */
+
+                // get the metrics of each logging statement and stream them to the export file
+                indicator.setText("Analyzing exception logging metrics");
+                try (ResultFileWriter writer = ResultFileWriter.create(project, "exception-logging-metrics",
+                        ExceptionLoggingMetrics.getLoggingMetricsHeader())) {
+                    // the metrics of the files that have not changed since the last run are cached
+                    FileAnalysisCache.getInstance(project).processRecords(loggingStatements,
+                            AnalysisKind.EXCEPTION_LOGGING_METRICS, indicator,
+                            record -> writer.writeRow(AnalysisKind.EXCEPTION_LOGGING_METRICS.getRow(record)));
+                    logger.info("Exception logging metrics for project " + projectName + " (" + writer.getNumRows() +
+                            " logging statements) are written to " + writer.getFile());
+                } catch (IOException e) {
+                    logger.warn("Failed to export the exception logging metrics for project " + projectName, e);
+                }
+            }
+        });
     }
 
     @Override
@@ -65,44 +83,29 @@ public class FindLoggingStatementsInCatchSections extends AnAction {
         event.getPresentation().setVisible(visibility);
     }
 
-    public static List<PsiMethodCallExpression> findLoggingStatementsInCatchSections(Project project) {
-        List<PsiMethodCallExpression> loggingStatements = new ArrayList<>();
-
-        // Pattern for matching logging statements
-        Pattern pLog = Pattern.compile(".*log.*\\.(trace|debug|info|warn|error|fatal)", Pattern.CASE_INSENSITIVE);
+    public static List<LoggingStatementRecord> findLoggingStatementsInCatchSections(Project project,
+                                                                                    ProgressIndicator indicator) {
+        return findLoggingStatementsInCatchSections(project, indicator, fileResults -> {});
+    }
 
-        ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
-        projectFileIndex.iterateContent(new ContentIterator() {
-            @Override
-            public boolean processFile(VirtualFile fileOrDir) {
-                if (!fileOrDir.isDirectory() && projectFileIndex.isUnderSourceRootOfType(fileOrDir,
-                        JavaModuleSourceRootTypes.SOURCES)) {
-                    PsiFile psiFile = PsiManager.getInstance(project).findFile(fileOrDir);
-                    if (!(psiFile instanceof PsiJavaFile)) {
-                        return true; // skip non-Java files
-                    }
-                    String fileName = psiFile.getName();
-                    if (fileName.matches(".*Test\\.java")) {
-                        return true; // skip test files
-                    }
-
-                    Collection<PsiCatchSection> catchSectionsInFile = PsiTreeUtil.findChildrenOfType(psiFile, PsiCatchSection.class);
-                    if (catchSectionsInFile.size() == 0) {
-                        return true;
-                    }
-
-                    for (PsiCatchSection catchSection : catchSectionsInFile) {
-                        PsiTreeUtil.findChildrenOfType(catchSection, PsiMethodCallExpression.class).forEach(m -> {
-                            if (pLog.matcher(m.getMethodExpression().getText()).matches()) {
-                                loggingStatements.add(m);
-                                //logger.info("catchSection's child PsiMethodCallExpression matching log pattern: " + m.getMethodExpression().getText());
-                            }
-                        });
-                    }
-                }
-                return true;
-            }
-        });
+    /**
+     * Find the logging statements in the catch sections of a project
+     * @param fileResultsConsumer receives the logging statements of each file as soon as the file is scanned
+     */
+    public static List<LoggingStatementRecord> findLoggingStatementsInCatchSections(
+            Project project, ProgressIndicator indicator, Consumer<List<LoggingStatementRecord>> fileResultsConsumer) {
+        indicator.setText("Searching exception logging statements");
+        List<VirtualFile> javaFiles = ProjectScanner.collectJavaSourceFiles(project);
+
+        // only parse the files that mention a logger
+        List<VirtualFile> candidateFiles = LoggerWordFilter.retainFilesMentioningLoggers(project, javaFiles);
+
+        // each hit is turned into a record right away, so the PSI of the scanned files is not retained
+        List<LoggingStatementRecord> loggingStatements = ProjectScanner.scanFiles(project, candidateFiles, indicator,
+                psiFile -> JavaFileFacts.of(psiFile).getLoggingStatementsInCatchSections().stream()
+                        .map(LoggingStatementRecord::of)
+                        .collect(Collectors.toList()),
+                fileResultsConsumer);
 
         logger.info("The number of identified logging statements is " + loggingStatements.size());
 
@@ -0,0 +1,142 @@
+package findelements;
+
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.usages.Usage;
+import com.intellij.usages.UsageInfo2UsageAdapter;
+import com.intellij.usages.UsageSearcher;
+import com.intellij.usages.UsageView;
+import com.intellij.util.Processor;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import scanengine.LoggingStatementRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Usage searcher streaming logging statements into the find tool window as the scan finds them, in the order
+ * of the scanned files. Only the first page of logging statements is shown during the search, the others are
+ * kept as records and appended page by page with {@link #loadMore(UsageView, Runnable)}.
+ */
+public class LoggingStatementUsageSearcher implements UsageSearcher {
+
+    public interface Finder {
+        /**
+         * Find the logging statements, passing the logging statements of each file to the consumer as soon as
+         * the file is scanned
+         */
+        List<LoggingStatementRecord> find(ProgressIndicator indicator,
+                                          Consumer<List<LoggingStatementRecord>> fileResultsConsumer);
+    }
+
+    private final Project project;
+    private final Finder finder;
+    private final int pageSize;
+    // logging statements found but not shown yet, in the order they were found
+    private final List<LoggingStatementRecord> pendingStatements = new ArrayList<>();
+    private int numShownStatements = 0;
+    private volatile List<LoggingStatementRecord> loggingStatements = null;
+
+    public LoggingStatementUsageSearcher(Project project, Finder finder, int pageSize) {
+        this.project = project;
+        this.finder = finder;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void generate(@NotNull Processor<? super Usage> processor) {
+        ProgressIndicator globalIndicator = ProgressManager.getGlobalProgressIndicator();
+        ProgressIndicator indicator = globalIndicator == null ? new EmptyProgressIndicator() : globalIndicator;
+
+        loggingStatements = finder.find(indicator, fileStatements -> {
+            for (LoggingStatementRecord record : fileStatements) {
+                if (!reserveShownStatement(record)) {
+                    continue; // the first page is full
+                }
+                Usage usage = ReadAction.compute(() -> toUsage(record));
+                if (usage != null && !processor.process(usage)) {
+                    indicator.cancel(); // the usage view has been closed
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * All the logging statements found, in the order of the scanned files, or null if the search
+     * has not been completed (e.g., it has been cancelled)
+     */
+    @Nullable
+    public List<LoggingStatementRecord> getLoggingStatements() {
+        return loggingStatements;
+    }
+
+    public synchronized boolean hasMore() {
+        return !pendingStatements.isEmpty();
+    }
+
+    /**
+     * Append the next page of logging statements to the usage view, the usages are built in a background
+     * read action. Must be called on the EDT.
+     * @param onPageShown called on the EDT once the page is appended
+     */
+    public void loadMore(UsageView usageView, Runnable onPageShown) {
+        List<LoggingStatementRecord> page;
+        synchronized (this) {
+            List<LoggingStatementRecord> nextPage =
+                    pendingStatements.subList(0, Math.min(pageSize, pendingStatements.size()));
+            page = new ArrayList<>(nextPage);
+            nextPage.clear();
+            numShownStatements += page.size();
+        }
+
+        ReadAction.nonBlocking(() -> toUsages(page))
+                .expireWith(usageView)
+                .finishOnUiThread(ModalityState.defaultModalityState(), usages -> {
+                    usages.forEach(usageView::appendUsage);
+                    onPageShown.run();
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private List<Usage> toUsages(List<LoggingStatementRecord> records) {
+        List<Usage> usages = new ArrayList<>();
+        for (LoggingStatementRecord record : records) {
+            Usage usage = toUsage(record);
+            if (usage != null) {
+                usages.add(usage);
+            }
+        }
+        return usages;
+    }
+
+    private synchronized boolean reserveShownStatement(LoggingStatementRecord record) {
+        if (numShownStatements < pageSize) {
+            numShownStatements++;
+            return true;
+        }
+        pendingStatements.add(record);
+        return false;
+    }
+
+    @Nullable
+    private Usage toUsage(LoggingStatementRecord record) {
+        PsiFile psiFile = record.getFile().isValid()
+                ? PsiManager.getInstance(project).findFile(record.getFile())
+                : null;
+        if (psiFile == null || record.getEndOffset() > psiFile.getTextLength()) {
+            return null; // the file has been deleted or changed since it was scanned
+        }
+        return new UsageInfo2UsageAdapter(new UsageInfo(psiFile, record.getStartOffset(), record.getEndOffset()));
+    }
+}
@@ -0,0 +1,217 @@
+package headless;
+
+import analysiscache.AnalysisKind;
+import analysiscache.FileAnalysisCache;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import exceptionloggingmetrics.ExceptionLoggingMetrics;
+import exportresults.ResultFileWriter;
+import findelements.FindLoggingStatements;
+import findelements.FindLoggingStatementsInCatchSections;
+import loggingcomponents.LogTemplateDictionary;
+import loggingcomponents.LoggingComponents;
+import scanengine.LoggingStatementRecord;
+import scanengine.ProjectScanner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Analyzes the projects of a batch, several projects at a time within the memory budget,
+ * and reports the throughput of each project.
+ */
+class BatchRunner {
+    private static final Logger logger = Logger.getInstance(BatchRunner.class);
+
+    private final LoggingObserverStarter.BatchOptions options;
+    private final Object memoryLock = new Object();
+    private int runningProjects = 0;
+
+    BatchRunner(LoggingObserverStarter.BatchOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Analyze all the projects and write a summary of the batch.
+     * @return the number of projects that could not be analyzed
+     */
+    int run() {
+        ExecutorService executor = AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                "Logging Observer batch", options.parallelism);
+        List<Future<ProjectReport>> futures = new ArrayList<>();
+        List<String> outputNames = getOutputNames(options.projectDirs);
+        for (int i = 0; i < options.projectDirs.size(); i++) {
+            Path projectDir = options.projectDirs.get(i);
+            Path outputDir = options.outputDir.resolve(outputNames.get(i));
+            futures.add(executor.submit(() -> analyzeProjectWithinBudget(projectDir, outputDir)));
+        }
+
+        List<ProjectReport> reports = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                reports.add(futures.get(i).get());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.warn("Failed to analyze project " + options.projectDirs.get(i), e);
+                reports.add(ProjectReport.failed(options.projectDirs.get(i), e.getCause() == null ? e : e.getCause()));
+            }
+        }
+        executor.shutdown();
+
+        try {
+            writeSummary(reports);
+        } catch (IOException e) {
+            logger.warn("Failed to write the summary of the batch", e);
+        }
+
+        return (int) reports.stream().filter(ProjectReport::isFailed).count();
+    }
+
+    /**
+     * Names of the output directories of the projects: the project directory name, followed by a hash of the
+     * project path when several projects of the batch have the same directory name (e.g., "a/core" and "b/core")
+     */
+    private static List<String> getOutputNames(List<Path> projectDirs) {
+        Map<String, Integer> projectsPerName = new HashMap<>();
+        for (Path projectDir : projectDirs) {
+            projectsPerName.merge(getDirName(projectDir), 1, Integer::sum);
+        }
+        List<String> outputNames = new ArrayList<>();
+        for (Path projectDir : projectDirs) {
+            String name = getDirName(projectDir);
+            if (projectsPerName.get(name) > 1) {
+                name += "-" + Integer.toHexString(projectDir.toAbsolutePath().normalize().toString().hashCode());
+            }
+            outputNames.add(name);
+        }
+        return outputNames;
+    }
+
+    private static String getDirName(Path projectDir) {
+        Path fileName = projectDir.toAbsolutePath().normalize().getFileName();
+        return fileName == null ? "project" : fileName.toString();
+    }
+
+    private ProjectReport analyzeProjectWithinBudget(Path projectDir, Path outputDir) throws Exception {
+        waitForMemory();
+        try {
+            ProjectReport report = analyzeProject(projectDir, outputDir);
+            logger.info(report.toSummary());
+            return report;
+        } finally {
+            synchronized (memoryLock) {
+                runningProjects--;
+                memoryLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until the used heap is within the budget; a project is always admitted when no other is running
+     */
+    private void waitForMemory() throws InterruptedException {
+        synchronized (memoryLock) {
+            while (runningProjects > 0 && getUsedMemoryMb() > options.memoryBudgetMb) {
+                memoryLock.wait(1000);
+            }
+            runningProjects++;
+        }
+    }
+
+    private static long getUsedMemoryMb() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    }
+
+    private ProjectReport analyzeProject(Path projectDir, Path outputDir) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Project project = ProjectUtil.openOrImport(projectDir, null, false);
+        if (project == null) {
+            throw new IOException("Cannot open project " + projectDir);
+        }
+
+        try {
+            DumbService.getInstance(project).waitForSmartMode();
+            long indexedTime = System.currentTimeMillis();
+            logger.info("Indexed project " + project.getName() + " in " + (indexedTime - startTime) + " ms");
+
+            ProgressIndicator indicator = new EmptyProgressIndicator();
+            Files.createDirectories(outputDir);
+
+            int numJavaFiles = ProjectScanner.collectJavaSourceFiles(project).size();
+
+            List<LoggingStatementRecord> loggingStatements = ProgressManager.getInstance().runProcess(
+                    () -> FindLoggingStatements.findLoggingStatementsInFiles(project, indicator), indicator);
+            int numLoggingStatements = options.templateIds
+                    ? exportLoggingComponentsWithTemplateIds(project, loggingStatements, outputDir, indicator)
+                    : exportRows(project, loggingStatements, AnalysisKind.LOGGING_COMPONENTS,
+                    outputDir.resolve("logging-components.csv"), LoggingComponents.getLogComponentsHeader(), indicator);
+
+            List<LoggingStatementRecord> exceptionLoggingStatements = ProgressManager.getInstance().runProcess(
+                    () -> FindLoggingStatementsInCatchSections.findLoggingStatementsInCatchSections(project, indicator),
+                    indicator);
+            int numExceptionLoggingStatements = exportRows(project, exceptionLoggingStatements,
+                    AnalysisKind.EXCEPTION_LOGGING_METRICS, outputDir.resolve("exception-logging-metrics.csv"),
+                    ExceptionLoggingMetrics.getLoggingMetricsHeader(), indicator);
+
+            return new ProjectReport(projectDir, numJavaFiles, numLoggingStatements, numExceptionLoggingStatements,
+                    indexedTime - startTime, System.currentTimeMillis() - indexedTime);
+        } finally {
+            ApplicationManager.getApplication().invokeAndWait(
+                    () -> ProjectManager.getInstance().closeAndDispose(project));
+        }
+    }
+
+    private static int exportRows(Project project, List<LoggingStatementRecord> loggingStatements,
+                                  AnalysisKind kind, Path file, String header, ProgressIndicator indicator)
+            throws IOException {
+        try (ResultFileWriter writer = new ResultFileWriter(file, header, false)) {
+            FileAnalysisCache.getInstance(project).processRecords(loggingStatements, kind, indicator,
+                    record -> writer.writeRow(kind.getRow(record)));
+            return writer.getNumRows();
+        }
+    }
+
+    private static int exportLoggingComponentsWithTemplateIds(Project project,
+                                                              List<LoggingStatementRecord> loggingStatements,
+                                                              Path outputDir, ProgressIndicator indicator)
+            throws IOException {
+        LogTemplateDictionary dictionary = new LogTemplateDictionary();
+        try (ResultFileWriter writer = new ResultFileWriter(outputDir.resolve("logging-components.csv"),
+                LoggingComponents.getLogComponentsHeader(true), false)) {
+            FileAnalysisCache.getInstance(project).processRecords(loggingStatements,
+                    AnalysisKind.LOGGING_COMPONENTS, indicator,
+                    record -> writer.writeRow(LoggingComponents.toTemplateIdRow(record.getColumns(), dictionary)));
+            dictionary.write(outputDir.resolve("log-templates.csv"), false);
+            return writer.getNumRows();
+        }
+    }
+
+    private void writeSummary(List<ProjectReport> reports) throws IOException {
+        Files.createDirectories(options.outputDir);
+        try (BufferedWriter writer = Files.newBufferedWriter(options.outputDir.resolve("summary.csv"))) {
+            writer.write(ProjectReport.getSummaryHeader());
+            writer.newLine();
+            for (ProjectReport report : reports) {
+                writer.write(report.toSummary());
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package headless;
+
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless command analyzing a list of projects in batch, e.g.,
+ * <pre>idea.sh loggingObserver --output results --parallelism 2 --memory 4096 /path/to/project1 /path/to/project2</pre>
+ * Each project is opened, indexed, analyzed and closed; the results are written to one directory per project.
+ */
+public class LoggingObserverStarter implements ApplicationStarter {
+    private static final Logger logger = Logger.getInstance(LoggingObserverStarter.class);
+
+    private static final String USAGE = "Usage: loggingObserver [--output <dir>] [--parallelism <n>] " +
+            "[--memory <MB>] [--template-ids] [--projects <file with one project directory per line>] [<project dir>...]";
+
+    @Override
+    public void main(@NotNull List<String> args) {
+        BatchOptions options;
+        try {
+            options = parseOptions(args.subList(1, args.size())); // the first argument is the command name
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        logger.info("Analyzing " + options.projectDirs.size() + " projects, results are written to " +
+                options.outputDir);
+        int numFailedProjects = new BatchRunner(options).run();
+        System.exit(numFailedProjects == 0 ? 0 : 2);
+    }
+
+    private static BatchOptions parseOptions(List<String> args) throws IOException {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--output":
+                    options.outputDir = Paths.get(getValue(args, ++i, arg));
+                    break;
+                case "--parallelism":
+                    options.parallelism = Integer.parseInt(getValue(args, ++i, arg));
+                    break;
+                case "--memory":
+                    options.memoryBudgetMb = Long.parseLong(getValue(args, ++i, arg));
+                    break;
+                case "--template-ids":
+                    options.templateIds = true;
+                    break;
+                case "--projects":
+                    for (String line : Files.readAllLines(Paths.get(getValue(args, ++i, arg)))) {
+                        if (!line.trim().isEmpty()) {
+                            options.projectDirs.add(Paths.get(line.trim()));
+                        }
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                    options.projectDirs.add(Paths.get(arg));
+            }
+        }
+
+        if (options.projectDirs.isEmpty()) {
+            throw new IllegalArgumentException("No project directory is given");
+        }
+        if (options.parallelism < 1 || options.memoryBudgetMb < 1) {
+            throw new IllegalArgumentException("The parallelism and the memory budget must be positive");
+        }
+        return options;
+    }
+
+    private static String getValue(List<String> args, int index, String option) {
+        if (index >= args.size()) {
+            throw new IllegalArgumentException("Missing value of option " + option);
+        }
+        return args.get(index);
+    }
+
+    static class BatchOptions {
+        Path outputDir = Paths.get("logging-observer-results");
+        // number of projects analyzed at the same time
+        int parallelism = 2;
+        // no new project is opened while the used heap exceeds the budget
+        long memoryBudgetMb = Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4;
+        // the logging components reference their log strings by ID, the templates are written to log-templates.csv
+        boolean templateIds = false;
+        List<Path> projectDirs = new ArrayList<>();
+    }
+}
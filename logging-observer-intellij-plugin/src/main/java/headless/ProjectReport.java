@@ -0,0 +1,71 @@
+package headless;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Size and throughput of the analysis of one project of a batch
+ */
+class ProjectReport {
+    private final Path projectDir;
+    private final int numJavaFiles;
+    private final int numLoggingStatements;
+    private final int numExceptionLoggingStatements;
+    private final long indexingMillis;
+    private final long analysisMillis;
+    private final String error;
+
+    ProjectReport(Path projectDir, int numJavaFiles, int numLoggingStatements, int numExceptionLoggingStatements,
+                  long indexingMillis, long analysisMillis) {
+        this(projectDir, numJavaFiles, numLoggingStatements, numExceptionLoggingStatements,
+                indexingMillis, analysisMillis, null);
+    }
+
+    private ProjectReport(Path projectDir, int numJavaFiles, int numLoggingStatements,
+                          int numExceptionLoggingStatements, long indexingMillis, long analysisMillis, String error) {
+        this.projectDir = projectDir;
+        this.numJavaFiles = numJavaFiles;
+        this.numLoggingStatements = numLoggingStatements;
+        this.numExceptionLoggingStatements = numExceptionLoggingStatements;
+        this.indexingMillis = indexingMillis;
+        this.analysisMillis = analysisMillis;
+        this.error = error;
+    }
+
+    static ProjectReport failed(Path projectDir, Throwable cause) {
+        return new ProjectReport(projectDir, 0, 0, 0, 0, 0, String.valueOf(cause.getMessage()));
+    }
+
+    boolean isFailed() { return this.error != null; }
+
+    static String getSummaryHeader() {
+        return "project,javaFiles,loggingStatements,exceptionLoggingStatements,indexingSeconds,analysisSeconds," +
+                "filesPerSecond,statementsPerSecond,status";
+    }
+
+    String toSummary() {
+        double analysisSeconds = analysisMillis / 1000.0;
+        return String.join(",",
+                toCsvField(projectDir.toString()),
+                String.valueOf(numJavaFiles),
+                String.valueOf(numLoggingStatements),
+                String.valueOf(numExceptionLoggingStatements),
+                String.format(Locale.ROOT, "%.1f", indexingMillis / 1000.0),
+                String.format(Locale.ROOT, "%.1f", analysisSeconds),
+                String.format(Locale.ROOT, "%.1f", analysisSeconds == 0 ? 0 : numJavaFiles / analysisSeconds),
+                String.format(Locale.ROOT, "%.1f", analysisSeconds == 0 ? 0 :
+                        (numLoggingStatements + numExceptionLoggingStatements) / analysisSeconds),
+                isFailed() ? toCsvField("failed: " + error) : "ok");
+    }
+
+    /**
+     * Quote a field containing a comma, a quote or a line break, the quotes inside it are doubled
+     * and the line breaks replaced with spaces so a report stays on one line
+     */
+    private static String toCsvField(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return "\"" + field.replace("\"", "\"\"").replace("\r\n", " ").replace('\r', ' ').replace('\n', ' ') + "\"";
+    }
+}
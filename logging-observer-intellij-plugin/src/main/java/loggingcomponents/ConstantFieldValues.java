@@ -0,0 +1,75 @@
+package loggingcomponents;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Values of the constant fields referenced in log strings (e.g., a static final String prefix), so that
+ * their text is kept in the log templates. The value of a field is evaluated once by the constant evaluation
+ * helper and cached on the field until the PSI changes, so it is shared by all the logging statements of
+ * the scan referring to the field. The files defining the folded fields can be collected, so that the cached
+ * analyses of the files folding them are refreshed when they change.
+ */
+public class ConstantFieldValues {
+    // the files defining the fields folded by the computation running on the thread, null if not collected
+    private static final ThreadLocal<Set<VirtualFile>> definingFiles = new ThreadLocal<>();
+
+    private ConstantFieldValues() {
+    }
+
+    /**
+     * Run a computation and collect the files defining the constant fields it folds. Only the files of the fields
+     * referred to are collected, not those of the constants their values depend on.
+     */
+    public static <T> T computeCollectingDefiningFiles(Supplier<T> computation, Set<VirtualFile> files) {
+        Set<VirtualFile> previousFiles = definingFiles.get();
+        definingFiles.set(files);
+        try {
+            return computation.get();
+        } finally {
+            definingFiles.set(previousFiles);
+        }
+    }
+
+    /**
+     * Text of the constant value of the field referred to, null if the reference is not to a constant field
+     */
+    @Nullable
+    public static String getConstantText(PsiReferenceExpression reference) {
+        PsiElement resolved = reference.resolve();
+        if (!(resolved instanceof PsiField)) {
+            return null;
+        }
+        Object value = getConstantValue((PsiField) resolved);
+        if (value == null) {
+            return null;
+        }
+        Set<VirtualFile> files = definingFiles.get();
+        VirtualFile file = files == null ? null : resolved.getContainingFile().getVirtualFile();
+        if (file != null) {
+            files.add(file);
+        }
+        return value.toString();
+    }
+
+    @Nullable
+    private static Object getConstantValue(PsiField field) {
+        if (!field.hasModifierProperty(PsiModifier.FINAL)) {
+            return null;
+        }
+        // the value may depend on constants of other files (e.g., PREFIX = BASE + "."), hence any PSI change
+        return CachedValuesManager.getCachedValue(field, () -> {
+            PsiExpression initializer = field.getInitializer();
+            Object value = initializer == null ? null : JavaPsiFacade.getInstance(field.getProject())
+                    .getConstantEvaluationHelper().computeConstantExpression(initializer);
+            return CachedValueProvider.Result.create(value, PsiModificationTracker.getInstance(field.getProject()));
+        });
+    }
+}
@@ -0,0 +1,236 @@
+package loggingcomponents;
+
+import com.intellij.psi.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The log string of a logging statement (its first argument) parsed once into constant text, placeholder
+ * slots ("{}") and the expressions concatenated to it, along with the variables passed after it.
+ * The log string without variables, with the variable names and with the variable types are rendered from
+ * the template in one pass each, without regular expressions. The constant fields concatenated to the log
+ * string are folded into its text; otherwise only the rendering with the variable types resolves references.
+ */
+public class LogTemplate {
+    public enum Rendering { WITHOUT_VARIABLES, VARIABLE_NAMES, VARIABLE_TYPES }
+
+    private final int argCount;
+    private final List<Segment> segments = new ArrayList<>();
+    // the arguments after the log string
+    private final List<PsiExpression> variables = new ArrayList<>();
+
+    private LogTemplate(int argCount) {
+        this.argCount = argCount;
+    }
+
+    public static LogTemplate parse(PsiMethodCallExpression logStmt) {
+        PsiExpression[] arguments = logStmt.getArgumentList().getExpressions();
+        LogTemplate template = new LogTemplate(arguments.length);
+        if (arguments.length == 0) {
+            return template;
+        }
+
+        PsiExpression logString = arguments[0];
+        String constantText = getConstantText(logString);
+        if (constantText != null) {
+            template.addText(constantText);
+        } else if (logString instanceof PsiPolyadicExpression) {
+            template.addOperands((PsiPolyadicExpression) logString);
+        } else {
+            template.segments.add(Segment.expression(logString));
+        }
+        for (int i = 1; i < arguments.length; i++) {
+            template.variables.add(arguments[i]);
+        }
+        return template;
+    }
+
+    /**
+     * Render the log string in one pass over the template
+     */
+    public String render(Rendering rendering) {
+        if (argCount == 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder();
+
+        if (rendering == Rendering.WITHOUT_VARIABLES) {
+            for (Segment segment : segments) {
+                if (segment.kind == SegmentKind.TEXT) {
+                    out.append(segment.text);
+                } else if (segment.kind == SegmentKind.PLACEHOLDER && argCount == 1) {
+                    out.append(segment.spaceBefore ? " {}" : "{}"); // without variables, nothing to remove
+                }
+            }
+            return out.toString();
+        }
+
+        // the placeholders are replaced with the variables in order, the remaining variables are appended
+        int varIndex = 0;
+        for (Segment segment : segments) {
+            if (segment.kind == SegmentKind.TEXT) {
+                out.append(segment.text);
+            } else if (segment.kind == SegmentKind.EXPRESSION) {
+                out.append(renderVariable(segment.expression, rendering));
+            } else if (varIndex < variables.size()) {
+                if (segment.spaceBefore) out.append(' ');
+                out.append(renderVariable(variables.get(varIndex++), rendering));
+            } else {
+                out.append(segment.spaceBefore ? " {}" : "{}");
+            }
+        }
+        for (; varIndex < variables.size(); varIndex++) {
+            out.append(' ');
+            out.append(renderVariable(variables.get(varIndex), rendering));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Replace the line breaks (\r\n, \r or \n) of a text with spaces
+     */
+    public static String toSingleLine(String text) {
+        if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                out.append(' ');
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') i++; // \r\n is one line break
+            } else if (c == '\n') {
+                out.append(' ');
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Add the operands of a log string concatenation: the literals and constant fields as text and the variables
+     * and method calls as expressions, the other operands are skipped
+     */
+    private void addOperands(PsiPolyadicExpression polyadicExpression) {
+        for (PsiExpression operand : polyadicExpression.getOperands()) {
+            String constantText = getConstantText(operand);
+            if (constantText != null) {
+                addText(constantText);
+            } else if (operand instanceof PsiReferenceExpression || operand instanceof PsiMethodCallExpression) {
+                segments.add(Segment.expression(operand));
+            } else if (operand instanceof PsiPolyadicExpression) {
+                addOperands((PsiPolyadicExpression) operand);
+            }
+        }
+    }
+
+    /**
+     * Split a constant text into text and placeholder segments, a space before a placeholder belongs to it
+     */
+    private void addText(String text) {
+        int start = 0;
+        for (int i = text.indexOf("{}"); i >= 0; i = text.indexOf("{}", start)) {
+            boolean spaceBefore = i > start && text.charAt(i - 1) == ' ';
+            int textEnd = spaceBefore ? i - 1 : i;
+            if (textEnd > start) {
+                segments.add(Segment.text(text.substring(start, textEnd)));
+            }
+            segments.add(Segment.placeholder(spaceBefore));
+            start = i + 2;
+        }
+        if (start < text.length()) {
+            segments.add(Segment.text(text.substring(start)));
+        }
+    }
+
+    /**
+     * Render a variable, or an expression of the log string other than a literal
+     */
+    private static String renderVariable(PsiExpression expression, Rendering rendering) {
+        if (expression instanceof PsiLiteralExpression) {
+            return getLiteralText((PsiLiteralExpression) expression);
+        } else if (expression instanceof PsiPolyadicExpression) {
+            StringBuilder concatenation = new StringBuilder();
+            for (PsiExpression operand : ((PsiPolyadicExpression) expression).getOperands()) {
+                if (operand instanceof PsiLiteralExpression || operand instanceof PsiReferenceExpression
+                        || operand instanceof PsiMethodCallExpression || operand instanceof PsiPolyadicExpression) {
+                    concatenation.append(renderVariable(operand, rendering));
+                }
+            }
+            return concatenation.toString();
+        } else if (expression instanceof PsiReferenceExpression) {
+            return rendering == Rendering.VARIABLE_TYPES
+                    ? getVariableType((PsiReferenceExpression) expression)
+                    : getName((PsiReferenceExpression) expression);
+        } else if (expression instanceof PsiMethodCallExpression) {
+            PsiMethodCallExpression methodCall = (PsiMethodCallExpression) expression;
+            return rendering == Rendering.VARIABLE_TYPES
+                    ? getReturnType(methodCall)
+                    : getName(methodCall.getMethodExpression());
+        } else { // should not come here
+            return expression.getText();
+        }
+    }
+
+    private static String getName(PsiReferenceExpression reference) {
+        String name = reference.getReferenceName();
+        return name == null ? reference.getText() : name;
+    }
+
+    private static String getVariableType(PsiReferenceExpression reference) {
+        PsiElement resolvedElement = reference.resolve();
+        if (resolvedElement == null) {
+            return "UnresolvableVariable";
+        }
+        if (!(resolvedElement instanceof PsiVariable)) {
+            return "NotAVariable";
+        }
+        PsiType variableType = ((PsiVariable) resolvedElement).getType();
+        return variableType == null ? "UnresolvableVariableNoType" : variableType.getPresentableText();
+    }
+
+    private static String getReturnType(PsiMethodCallExpression methodCall) {
+        PsiMethod method = methodCall.resolveMethod();
+        PsiType returnType = method == null ? null : method.getReturnType();
+        return returnType == null ? "UnresolvableMethodCall" : returnType.getPresentableText();
+    }
+
+    /**
+     * Text of a literal or of a reference to a constant field (e.g., a static final String), null otherwise
+     */
+    private static String getConstantText(PsiExpression expression) {
+        if (expression instanceof PsiLiteralExpression) {
+            return getLiteralText((PsiLiteralExpression) expression);
+        } else if (expression instanceof PsiReferenceExpression) {
+            return ConstantFieldValues.getConstantText((PsiReferenceExpression) expression);
+        }
+        return null;
+    }
+
+    private static String getLiteralText(PsiLiteralExpression literal) {
+        Object value = literal.getValue();
+        return value == null ? literal.getText() : value.toString();
+    }
+
+    private enum SegmentKind { TEXT, PLACEHOLDER, EXPRESSION }
+
+    private static class Segment {
+        private final SegmentKind kind;
+        private final String text;
+        private final boolean spaceBefore; // a space before the placeholder, removed with it
+        private final PsiExpression expression;
+
+        private Segment(SegmentKind kind, String text, boolean spaceBefore, PsiExpression expression) {
+            this.kind = kind;
+            this.text = text;
+            this.spaceBefore = spaceBefore;
+            this.expression = expression;
+        }
+
+        static Segment text(String text) { return new Segment(SegmentKind.TEXT, text, false, null); }
+        static Segment placeholder(boolean spaceBefore) { return new Segment(SegmentKind.PLACEHOLDER, null, spaceBefore, null); }
+        static Segment expression(PsiExpression expression) { return new Segment(SegmentKind.EXPRESSION, null, false, expression); }
+    }
+}
@@ -0,0 +1,108 @@
+package loggingcomponents;
+
+import com.intellij.util.io.DigestUtil;
+import exportresults.ResultFileWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Dictionary of the log templates (the log strings of the logging components) of an export, so that the rows
+ * reference the templates by ID and each distinct template is held and written once, with the number of
+ * logging statements it occurs in. Templates are normalized (single line, trimmed, runs of whitespace
+ * collapsed) and their IDs are derived from their text, so an ID is stable across runs and projects.
+ * Not thread-safe, the rows are passed one at a time.
+ */
+public class LogTemplateDictionary {
+    public static final String HEADER =
+            String.join(LoggingComponents.SEPARATOR, "templateId", "occurrences", "template");
+
+    // normalized template -> entry, in the order the templates are first seen
+    private final Map<String, Entry> entriesPerTemplate = new LinkedHashMap<>();
+    private int numOccurrences = 0;
+
+    /**
+     * Add the templates of a logging statement (e.g., its log string with and without variables), a template
+     * occurring several times in the statement is counted once
+     * @return the IDs of the normalized templates, empty for an empty template
+     */
+    public String[] internStatement(String... templates) {
+        String[] ids = new String[templates.length];
+        Set<Entry> statementEntries = new HashSet<>();
+        for (int i = 0; i < templates.length; i++) {
+            String normalized = normalize(templates[i]);
+            if (normalized.isEmpty()) {
+                ids[i] = "";
+                continue;
+            }
+            Entry entry = entriesPerTemplate.computeIfAbsent(normalized, t -> new Entry(computeId(t)));
+            if (statementEntries.add(entry)) {
+                entry.occurrences++;
+                numOccurrences++;
+            }
+            ids[i] = entry.id;
+        }
+        return ids;
+    }
+
+    public int getNumTemplates() { return this.entriesPerTemplate.size(); }
+    public int getNumOccurrences() { return this.numOccurrences; }
+
+    /**
+     * Write the templates, the most frequent first
+     */
+    public void write(Path file, boolean gzip) throws IOException {
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(entriesPerTemplate.entrySet());
+        entries.sort(Comparator.<Map.Entry<String, Entry>>comparingInt(e -> -e.getValue().occurrences)
+                .thenComparing(e -> e.getValue().id));
+        try (ResultFileWriter writer = new ResultFileWriter(file, HEADER, gzip)) {
+            for (Map.Entry<String, Entry> entry : entries) {
+                writer.writeRow(String.join(LoggingComponents.SEPARATOR,
+                        entry.getValue().id, String.valueOf(entry.getValue().occurrences), entry.getKey()));
+            }
+        }
+    }
+
+    static String normalize(String template) {
+        StringBuilder normalized = new StringBuilder(template.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * "T" followed by the first 64 bits of the SHA-1 hash of the template, in hex
+     */
+    private static String computeId(String normalizedTemplate) {
+        MessageDigest digest = DigestUtil.sha1();
+        byte[] hash = digest.digest(normalizedTemplate.getBytes(StandardCharsets.UTF_8));
+        StringBuilder id = new StringBuilder("T");
+        for (int i = 0; i < 8; i++) {
+            id.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return id.toString();
+    }
+
+    private static class Entry {
+        private final String id;
+        private int occurrences = 0;
+
+        Entry(String id) {
+            this.id = id;
+        }
+    }
+}
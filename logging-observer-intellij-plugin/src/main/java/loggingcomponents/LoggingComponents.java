@@ -2,445 +2,150 @@ package loggingcomponents;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.PsiTreeUtil;
 import findelements.FindLoggingStatements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import typehierarchy.ExceptionTypeHierarchy;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import common.Locators;
 
 public class LoggingComponents {
     private static final Logger logger = LoggerFactory.getLogger(LoggingComponents.class);
+    public static final String SEPARATOR = ";;;";
+    // columns holding the log strings, replaced with template IDs when exporting with a template dictionary
+    private static final int FIRST_TEMPLATE_COLUMN = 3;
     //private static final org.slf4j.Logger logger = LoggerFactory.getLogger(LoggingComponents.class);
 
     private PsiMethodCallExpression logStmt;
+    // components extracted on first use, so the callers only pay for the ones they read
+    // (e.g., the variable types are only resolved if the log string with variable types is read)
     String logLevel;
+    LogTemplate logTemplate; // the log string parsed once for its three renderings
     String logStringWithoutVariables;
     String logStringWithVariableNames;
     String logStringWithVariableTypes;
     String logBody;
-    boolean isStackTraceLogged;
+    Boolean isStackTraceLogged;
 
     private Project project;
 
     public LoggingComponents(PsiMethodCallExpression logStmt) {
         this.logStmt = logStmt;
         this.project = logStmt.getProject();
-        this.logLevel = extractLogLevel(logStmt);
-        this.logStringWithoutVariables = extractLogStringWithoutVariables(logStmt);
-        this.logStringWithVariableNames = extractLogStringWithVariableNames(logStmt);
-        this.logStringWithVariableTypes = extractLogStringWithVariableTypes(logStmt);
-        this.logBody = extractLogBody(logStmt);
-        this.isStackTraceLogged = extractIsStackTraceLogged(logStmt);
     }
 
     public static String getLogComponentsHeader() {
+        return getLogComponentsHeader(false);
+    }
+
+    /**
+     * @param templateIds the log string columns hold the IDs of the templates of a {@link LogTemplateDictionary}
+     */
+    public static String getLogComponentsHeader(boolean templateIds) {
         List<String> componentsHeader = new ArrayList<>();
+        String suffix = templateIds ? "Id" : "";
 
         componentsHeader.add("logLocation");
         componentsHeader.add("logBody");
         componentsHeader.add("logLevel");
-        componentsHeader.add("logStringWithoutVariables");
-        componentsHeader.add("logStringWithVariableNames");
-        componentsHeader.add("logStringWithVariableTypes");
-
-        return String.join(";;;", componentsHeader);
-    }
-
-    public String getLogComponents() {
-        List<String> logComponents = new ArrayList<>();
-
-        logComponents.add(Locators.getLocationInFile(this.logStmt));
-        logComponents.add(getLogBody());
-        logComponents.add(getLogLevel());
-        logComponents.add(getLogStringWithoutVariables().replaceAll("\\r\\n|\\r|\\n", " "));
-        logComponents.add(getLogStringWithVariableNames().replaceAll("\\r\\n|\\r|\\n", " "));
-        logComponents.add(getLogStringWithVariableTypes().replaceAll("\\r\\n|\\r|\\n", " "));
+        componentsHeader.add("logStringWithoutVariables" + suffix);
+        componentsHeader.add("logStringWithVariableNames" + suffix);
+        componentsHeader.add("logStringWithVariableTypes" + suffix);
 
-        return String.join(";;;", logComponents);
+        return String.join(SEPARATOR, componentsHeader);
     }
 
-
-    public String getLogLevel() { return this.logLevel; }
-    public String getLogStringWithoutVariables() { return this.logStringWithoutVariables; }
-    public String getLogStringWithVariableNames() { return this.logStringWithVariableNames; }
-    public String getLogStringWithVariableTypes() { return this.logStringWithVariableTypes; }
-    public String getLogBody() { return this.logBody.replaceAll("\\r\\n|\\r|\\n", " "); }
-    public boolean getIsStackTraceLogged() {return this.isStackTraceLogged; }
-    public String getContainingMethod() {return this.extractContainingMethod(this.logStmt);}
-
-    private String extractLogLevel(PsiMethodCallExpression logStmt) {
-        PsiReferenceExpression methodCall = logStmt.getMethodExpression();
-        String logMethodName = PsiTreeUtil.getChildOfType(methodCall, PsiIdentifier.class).getText();
-        return logMethodName;
+    /**
+     * Replace the log strings of the columns of {@link #getLogComponentColumns()} with the IDs of their templates
+     * @return the row of the template IDs
+     */
+    public static String toTemplateIdRow(String[] columns, LogTemplateDictionary dictionary) {
+        String[] idColumns = columns.clone();
+        String[] templateIds = dictionary.internStatement(
+                Arrays.copyOfRange(columns, FIRST_TEMPLATE_COLUMN, columns.length));
+        System.arraycopy(templateIds, 0, idColumns, FIRST_TEMPLATE_COLUMN, templateIds.length);
+        return String.join(SEPARATOR, idColumns);
     }
 
-    /*
-    private String extractLogStringWithoutVariables(PsiMethodCallExpression logStmt) {
-        PsiExpressionList expressionList = logStmt.getArgumentList();
-        Collection<PsiLiteralExpression> literalExpressions =
-                PsiTreeUtil.findChildrenOfType(expressionList, PsiLiteralExpression.class);
-        if (literalExpressions.size() >= 1) {
-            return literalExpressions.stream()
-                .map( l -> {
-                    Object value = l.getValue();
-                    //return (value == null) ? "" : value.toString();
-                    return (value == null) ? l.getText() : value.toString();
-                })
-                .collect(Collectors.joining(" "));
-        } else {
-            return "";
-        }
+    public String getLogComponents() {
+        return String.join(SEPARATOR, getLogComponentColumns());
     }
-    */
-
-    private String extractLogStringWithoutVariables(PsiMethodCallExpression logStmt) {
-        PsiExpressionList expressionList = logStmt.getArgumentList();
-        int argCount = expressionList.getExpressionCount();
-        //logger.info("logStmt: " + logStmt.getText() + "; argCount " + argCount);
-        if (argCount == 0) {return "";}
-
-        StringBuilder logString = new StringBuilder();
-        boolean isFirstArg = true;
-        List<String> vars = new ArrayList<>();
-        PsiExpression expression = expressionList.getExpressions()[0]; // get the first argument
-
-        if (expression instanceof PsiLiteralExpression) {
-            try {
-                logString.append(((PsiLiteralExpression) expression).getValue().toString());
-            } catch (NullPointerException e) {
-                logString.append(((PsiLiteralExpression) expression).getText());
-            }
-        } else if (expression instanceof PsiPolyadicExpression) {
-            logString.append(concatPolyadicExpressionToStringWithoutVariables((PsiPolyadicExpression)expression));
-        } else {
-            // should not come here
-        }
-
-        if (argCount == 1) {
-            return logString.toString();
-        }
-
-        // remove the place holders ("{}") in the log string
-
-        // first remove " {}"
-        Pattern pPlaceHolder = Pattern.compile(" \\{\\}");
-        Matcher mPlaceHolder = pPlaceHolder.matcher(logString);
-        String resultStr = new String(mPlaceHolder.replaceAll(""));
-
-        // then remove "{}"
-        Pattern pPlaceHolder2 = Pattern.compile("\\{\\}");
-        Matcher mPlaceHolder2 = pPlaceHolder2.matcher(resultStr);
-        String resultStr2 = new String(mPlaceHolder2.replaceAll(""));
 
-        return resultStr2;
+    /**
+     * The components of the logging statement, one column each (see {@link #getLogComponentsHeader()})
+     */
+    public String[] getLogComponentColumns() {
+        return new String[] {
+                Locators.getLocationInFile(this.logStmt),
+                getLogBody(),
+                getLogLevel(),
+                LogTemplate.toSingleLine(getLogStringWithoutVariables()),
+                LogTemplate.toSingleLine(getLogStringWithVariableNames()),
+                LogTemplate.toSingleLine(getLogStringWithVariableTypes())
+        };
     }
 
-    private String concatPolyadicExpressionToStringWithoutVariables(PsiPolyadicExpression polyadicExpression) {
-        PsiExpression[] expressions = polyadicExpression.getOperands();
-        StringBuilder logString = new StringBuilder();
 
-        for (PsiExpression expression : expressions) {
-            if (expression instanceof PsiLiteralExpression) {
-                try {
-                    logString.append(((PsiLiteralExpression) expression).getValue().toString());
-                } catch (NullPointerException e) {
-                    logString.append(((PsiLiteralExpression) expression).getText());
-                }
-            } else if (expression instanceof PsiPolyadicExpression) {
-                logString.append(concatPolyadicExpressionToStringWithoutVariables((PsiPolyadicExpression)expression));
-            }
+    public String getLogLevel() {
+        if (this.logLevel == null) {
+            this.logLevel = extractLogLevel(this.logStmt);
         }
-
-        return logString.toString();
+        return this.logLevel;
     }
 
-    private String extractLogStringWithVariableNames(PsiMethodCallExpression logStmt) {
-        PsiExpressionList expressionList = logStmt.getArgumentList();
-        int argCount = expressionList.getExpressionCount();
-        if (argCount == 0) {return "";}
-
-        StringBuilder logString = new StringBuilder();
-        boolean isFirstArg = true;
-        List<String> vars = new ArrayList<>();
-        for (PsiExpression expression : expressionList.getExpressions()) {
-            // get the log string (the first argument)
-            if (isFirstArg) {
-                if (expression instanceof PsiLiteralExpression) {
-                    try {
-                        logString.append(((PsiLiteralExpression) expression).getValue().toString());
-                    } catch (NullPointerException e) {
-                        logString.append(((PsiLiteralExpression) expression).getText());
-                    }
-                } else if (expression instanceof PsiPolyadicExpression) {
-                    logString.append(concatPolyadicExpressionToStringWithVarNames((PsiPolyadicExpression)expression));
-                } else if (expression instanceof PsiReferenceExpression) {
-                    logString.append(PsiTreeUtil.getChildOfType(expression, PsiIdentifier.class).getText());
-                } else if(expression instanceof PsiMethodCallExpression) {
-                    PsiReferenceExpression methodCallRef = PsiTreeUtil.getChildOfType(expression,
-                            PsiReferenceExpression.class);
-                    logString.append(PsiTreeUtil.getChildOfType(methodCallRef, PsiIdentifier.class).getText());
-                }
-                else { // should not come here
-                    logString.append(expression.getText());
-                }
-                isFirstArg = false;
-                continue;
-            }
-
-            // get the variables
-            if (expression instanceof PsiReferenceExpression) {
-                vars.add(PsiTreeUtil.getChildOfType(expression, PsiIdentifier.class).getText());
-            } else if(expression instanceof PsiMethodCallExpression) {
-                PsiReferenceExpression methodCallRef = PsiTreeUtil.getChildOfType(expression,
-                        PsiReferenceExpression.class);
-                vars.add(PsiTreeUtil.getChildOfType(methodCallRef, PsiIdentifier.class).getText());
-            } else if (expression instanceof PsiLiteralExpression) {
-                try {
-                    vars.add(((PsiLiteralExpression) expression).getValue().toString());
-                } catch (NullPointerException e) {
-                    vars.add(((PsiLiteralExpression) expression).getText());
-                }
-            } else if (expression instanceof PsiPolyadicExpression) {
-                vars.add(concatPolyadicExpressionToStringWithVarNames((PsiPolyadicExpression)expression));
-            } else { // should not come here
-                vars.add(expression.getText());
-            }
-        }
-
-        if (vars.size() == 0) {
-            return logString.toString();
-        }
-
-        // replace the place holders ("{}") in the log string with the variables
-        Pattern pPlaceHolder = Pattern.compile("\\{\\}");
-        Matcher mPlaceHolder = pPlaceHolder.matcher(logString);
-        int varIndex = 0;
-        StringBuffer combinedStr = new StringBuffer();
-        while (mPlaceHolder.find()) {
-            //int start = mPlaceHolder.start();
-            //int end = mPlaceHolder.end();
-            mPlaceHolder.appendReplacement(combinedStr, vars.get(varIndex));
-            varIndex += 1;
-            if (varIndex >= vars.size()) {
-                break;
-            }
+    public String getLogStringWithoutVariables() {
+        if (this.logStringWithoutVariables == null) {
+            this.logStringWithoutVariables = getLogTemplate().render(LogTemplate.Rendering.WITHOUT_VARIABLES);
         }
-        mPlaceHolder.appendTail(combinedStr);
-
-        // add the exception, if any, and other remaining vars to the end of the string
-        if (varIndex < vars.size()) {
-            for (String var : vars.subList(varIndex, vars.size())) {
-                combinedStr.append(" ").append(var);
-            }
-        }
-
-        return combinedStr.toString();
+        return this.logStringWithoutVariables;
     }
 
-    private String concatPolyadicExpressionToStringWithVarNames(PsiPolyadicExpression polyadicExpression) {
-        PsiExpression[] expressions = polyadicExpression.getOperands();
-        StringBuilder logString = new StringBuilder();
-
-        for (PsiExpression expression : expressions) {
-            if (expression instanceof PsiLiteralExpression) {
-                try {
-                    logString.append(((PsiLiteralExpression) expression).getValue().toString());
-                } catch (NullPointerException e) {
-                    logString.append(((PsiLiteralExpression) expression).getText());
-                }
-
-            } else if (expression instanceof PsiReferenceExpression) {
-                logString.append(PsiTreeUtil.getChildOfType(expression, PsiIdentifier.class).getText());
-            } else if(expression instanceof PsiMethodCallExpression) {
-                PsiReferenceExpression methodCallRef = PsiTreeUtil.getChildOfType(expression,
-                        PsiReferenceExpression.class);
-                logString.append(PsiTreeUtil.getChildOfType(methodCallRef, PsiIdentifier.class).getText());
-            } else if (expression instanceof PsiPolyadicExpression) {
-                logString.append(concatPolyadicExpressionToStringWithVarNames((PsiPolyadicExpression)expression));
-            }
+    public String getLogStringWithVariableNames() {
+        if (this.logStringWithVariableNames == null) {
+            this.logStringWithVariableNames = getLogTemplate().render(LogTemplate.Rendering.VARIABLE_NAMES);
         }
-
-        return logString.toString();
+        return this.logStringWithVariableNames;
     }
 
-    private String extractLogStringWithVariableTypes(PsiMethodCallExpression logStmt) {
-        PsiExpressionList expressionList = logStmt.getArgumentList();
-        int argCount = expressionList.getExpressionCount();
-        if (argCount == 0) {return "";}
-
-        StringBuilder logString = new StringBuilder();
-        boolean isFirstArg = true;
-        List<String> vars = new ArrayList<>();
-        for (PsiExpression expression : expressionList.getExpressions()) {
-            // get the log string (the first argument)
-            if (isFirstArg) {
-                if (expression instanceof PsiLiteralExpression) {
-                    try {
-                        logString.append(((PsiLiteralExpression) expression).getValue().toString());
-                    } catch (NullPointerException e) {
-                        logString.append(((PsiLiteralExpression) expression).getText());
-                    }
-                } else if (expression instanceof PsiPolyadicExpression) {
-                    logString.append(concatPolyadicExpressionToStringWithVarTypes((PsiPolyadicExpression)expression));
-                } else if (expression instanceof PsiReferenceExpression) {
-                    //logString.append(PsiTreeUtil.getChildOfType(expression, PsiIdentifier.class).getText());
-                    PsiElement resolvedElement = expression.getReference().resolve();
-                    if (resolvedElement == null) {
-                        logString.append("UnresolvableVariable");
-                        continue;
-                    }
-                    if (resolvedElement instanceof PsiVariable) {
-                        try {
-                            //PsiType variableType = PsiTreeUtil.findChildOfType((PsiVariable) resolvedElement,
-                            //        PsiTypeElement.class).getType();
-                            PsiType variableType = ((PsiVariable)resolvedElement).getType();
-                            logString.append(variableType.getPresentableText());
-                        } catch (NullPointerException e) {
-                            logString.append("UnresolvableVariableNoType");
-                        }
-                    } else {
-                        logString.append("NotAVariable");
-                    }
-                } else if(expression instanceof PsiMethodCallExpression) {
-                    PsiMethod method = ((PsiMethodCallExpression) expression).resolveMethod();
-                    if (method == null) {
-                        logString.append("UnresolvableMethodCall");
-                        continue;
-                    }
-                    String returnType = method.getReturnType().getPresentableText();
-                    logString.append(returnType);
-                }
-                else { // should not come here
-                    logString.append(expression.getText());
-                }
-                isFirstArg = false;
-                continue;
-            }
-
-            // get the variables
-            if (expression instanceof PsiReferenceExpression) {
-                //vars.add(PsiTreeUtil.getChildOfType(expression, PsiIdentifier.class).getText());
-                //PsiElement resolvedElement = expression.getReference().resolve();
-                PsiElement resolvedElement = ((PsiReferenceExpression)expression).resolve();
-                if (resolvedElement == null) {
-                    vars.add("UnresolvableVariable");
-                    continue;
-                }
-                if (resolvedElement instanceof PsiVariable) {
-                    try {
-                        //PsiType variableType = PsiTreeUtil.findChildOfType((PsiVariable) resolvedElement,
-                        //        PsiTypeElement.class).getType();
-                        PsiType variableType = ((PsiVariable)resolvedElement).getType();
-                        vars.add(variableType.getPresentableText());
-                    } catch (NullPointerException e) {
-                        vars.add("UnresolvableVariableNoType");
-                    }
-                } else {
-                    vars.add("NotAVariable");
-                }
-            } else if(expression instanceof PsiMethodCallExpression) {
-                PsiMethod method = ((PsiMethodCallExpression) expression).resolveMethod();
-                if (method == null) {
-                    vars.add("UnresolvableMethodCall");
-                    continue;
-                }
-                String returnType = method.getReturnType().getPresentableText();
-                vars.add(returnType);
-            } else if (expression instanceof PsiLiteralExpression) {
-                try {
-                    vars.add(((PsiLiteralExpression) expression).getValue().toString());
-                } catch (NullPointerException e) {
-                    logString.append(((PsiLiteralExpression) expression).getText());
-                }
-            } else if (expression instanceof PsiPolyadicExpression) {
-                vars.add(concatPolyadicExpressionToStringWithVarTypes((PsiPolyadicExpression)expression));
-            } else { // should not come here
-                vars.add(expression.getText());
-            }
-        }
-
-        if (vars.size() == 0) {
-            return logString.toString();
+    public String getLogStringWithVariableTypes() {
+        if (this.logStringWithVariableTypes == null) {
+            this.logStringWithVariableTypes = getLogTemplate().render(LogTemplate.Rendering.VARIABLE_TYPES);
         }
+        return this.logStringWithVariableTypes;
+    }
 
-        // replace the place holders ("{}") in the log string with the variables
-        Pattern pPlaceHolder = Pattern.compile("\\{\\}");
-        Matcher mPlaceHolder = pPlaceHolder.matcher(logString);
-        int varIndex = 0;
-        StringBuffer combinedStr = new StringBuffer();
-        while (mPlaceHolder.find()) {
-            //int start = mPlaceHolder.start();
-            //int end = mPlaceHolder.end();
-            mPlaceHolder.appendReplacement(combinedStr, vars.get(varIndex));
-            varIndex += 1;
-            if (varIndex >= vars.size()) {
-                break;
-            }
+    public String getLogBody() {
+        if (this.logBody == null) {
+            this.logBody = LogTemplate.toSingleLine(extractLogBody(this.logStmt));
         }
-        mPlaceHolder.appendTail(combinedStr);
+        return this.logBody;
+    }
 
-        // add the exception, if any, and other remaining vars to the end of the string
-        if (varIndex < vars.size()) {
-            for (String var : vars.subList(varIndex, vars.size())) {
-                combinedStr.append(" ").append(var);
-            }
+    public boolean getIsStackTraceLogged() {
+        if (this.isStackTraceLogged == null) {
+            this.isStackTraceLogged = extractIsStackTraceLogged(this.logStmt);
         }
-
-        return combinedStr.toString();
+        return this.isStackTraceLogged;
     }
 
-    private String concatPolyadicExpressionToStringWithVarTypes(PsiPolyadicExpression polyadicExpression) {
-        PsiExpression[] expressions = polyadicExpression.getOperands();
-        StringBuilder logString = new StringBuilder();
+    public String getContainingMethod() {return this.extractContainingMethod(this.logStmt);}
 
-        for (PsiExpression expression : expressions) {
-            if (expression instanceof PsiLiteralExpression) {
-                try {
-                    logString.append(((PsiLiteralExpression) expression).getValue().toString());
-                } catch (NullPointerException e) {
-                    logString.append(((PsiLiteralExpression) expression).getText());
-                }
-            } else if (expression instanceof PsiReferenceExpression) {
-                PsiElement resolvedElement = expression.getReference().resolve();
-                if (resolvedElement == null) {
-                    logString.append("UnresolvableVariable");
-                    continue;
-                }
-                if (resolvedElement instanceof PsiVariable) {
-                    try {
-                        //PsiType variableType = PsiTreeUtil.findChildOfType((PsiVariable) resolvedElement,
-                        //        PsiTypeElement.class).getType();
-                        PsiType variableType = ((PsiVariable)resolvedElement).getType();
-                        logString.append(variableType.getPresentableText());
-                    } catch (NullPointerException e) {
-                        logString.append("UnresolvableVariableNoType");
-                    }
-                } else {
-                    logString.append("NotAVariable");
-                }
-            } else if(expression instanceof PsiMethodCallExpression) {
-                PsiMethod method = ((PsiMethodCallExpression) expression).resolveMethod();
-                if (method == null) {
-                    logString.append("UnresolvableMethodCall");
-                    continue;
-                }
-                String returnType = method.getReturnType().getPresentableText();
-                logString.append(returnType);
-            } else if (expression instanceof PsiPolyadicExpression) {
-                logString.append(concatPolyadicExpressionToStringWithVarTypes((PsiPolyadicExpression)expression));
-            }
+    private LogTemplate getLogTemplate() {
+        if (this.logTemplate == null) {
+            this.logTemplate = LogTemplate.parse(this.logStmt);
         }
+        return this.logTemplate;
+    }
 
-        return logString.toString();
+    private String extractLogLevel(PsiMethodCallExpression logStmt) {
+        PsiReferenceExpression methodCall = logStmt.getMethodExpression();
+        String logMethodName = PsiTreeUtil.getChildOfType(methodCall, PsiIdentifier.class).getText();
+        return logMethodName;
     }
 
     private String extractLogBody(PsiMethodCallExpression logStmt) {
@@ -497,36 +202,7 @@ public class LoggingComponents {
     }
 
     private boolean isThrowableType(PsiType t) {
-        PsiType throwable = PsiType.getTypeByName("java.lang.Throwable", this.project,
-                GlobalSearchScope.allScope(this.project));
-        return isSubType(t, throwable, false);
-    }
-
-    /**
-     * Recursively check if a type is a sub-type of another type
-     * @param child
-     * @param parent
-     * @param strict: true -> returns false for same type; false -> return true for same type.
-     * @return
-     */
-    private boolean isSubType(PsiType child, PsiType parent, boolean strict) {
-
-        if (child.getCanonicalText().equals(parent.getCanonicalText())) {
-            if (strict) {
-                return false;
-            } else {
-                return true;
-            }
-        }
-
-        PsiType[] superTypes = child.getSuperTypes();
-        for (PsiType t : superTypes) {
-            if (t.getCanonicalText().equals(parent.getCanonicalText()) ||
-                    isSubType(t, parent, true)) {
-                return true;
-            }
-        }
-        return false;
+        return ExceptionTypeHierarchy.getInstance(this.project).isThrowable(t);
     }
 
 }
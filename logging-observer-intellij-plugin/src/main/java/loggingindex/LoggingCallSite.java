@@ -0,0 +1,58 @@
+package loggingindex;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import scanengine.LoggingStatementRecord;
+
+import java.util.Objects;
+
+/**
+ * A logging call site recorded in the logging call site index: the range of the call, the offset of the logging
+ * method name (e.g., "info" in LOG.info(...)), which identifies the call even when calls are chained,
+ * the level, the text of the logger qualifier and the hash of the log template.
+ */
+public class LoggingCallSite {
+    private final int startOffset;
+    private final int endOffset;
+    private final int nameOffset;
+    private final String level;
+    private final String qualifier;
+    private final int templateHash;
+
+    public LoggingCallSite(int startOffset, int endOffset, int nameOffset, String level, String qualifier,
+                           int templateHash) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.nameOffset = nameOffset;
+        this.level = level;
+        this.qualifier = qualifier;
+        this.templateHash = templateHash;
+    }
+
+    public int getStartOffset() { return this.startOffset; }
+    public int getEndOffset() { return this.endOffset; }
+    public int getNameOffset() { return this.nameOffset; }
+    public String getLevel() { return this.level; }
+    public String getQualifier() { return this.qualifier; }
+    public int getTemplateHash() { return this.templateHash; }
+
+    /**
+     * Record of the logging statement of this call site, without loading the PSI of the file
+     */
+    public LoggingStatementRecord toRecord(VirtualFile file) {
+        return new LoggingStatementRecord(file, startOffset, endOffset, level, templateHash, null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LoggingCallSite)) return false;
+        LoggingCallSite that = (LoggingCallSite) o;
+        return startOffset == that.startOffset && endOffset == that.endOffset && nameOffset == that.nameOffset
+                && templateHash == that.templateHash && level.equals(that.level) && qualifier.equals(that.qualifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startOffset, endOffset, nameOffset, level, qualifier, templateHash);
+    }
+}
@@ -0,0 +1,144 @@
+package loggingindex;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import loggingmatcher.LoggingCallMatcher;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import scanengine.LoggerWordFilter;
+import scanengine.LoggingStatementRecord;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent per-file index of logging call sites, maintained by the platform's indexing when files change.
+ * Searching the logging statements of a project becomes an index lookup, and PSI is only loaded for
+ * the files that do contain logging statements.
+ * The index holds candidate call sites (qualified calls of logging methods) with what the listing of the
+ * logging statements shows; the type of the logger is checked by {@link LoggingCallMatcher} when the call sites
+ * are looked up, once per distinct logger qualifier of a file.
+ */
+public class LoggingCallSiteIndex extends SingleEntryFileBasedIndexExtension<List<LoggingCallSite>> {
+    public static final ID<Integer, List<LoggingCallSite>> NAME = ID.create("loggingObserver.LoggingCallSiteIndex");
+
+    /**
+     * The logging call sites of a file, in the order of their offsets.
+     * Must be called in a read action in smart mode.
+     */
+    @NotNull
+    public static List<LoggingCallSite> getCallSites(Project project, VirtualFile file) {
+        Map<Integer, List<LoggingCallSite>> data = FileBasedIndex.getInstance().getFileData(NAME, file, project);
+        return data.isEmpty() ? Collections.emptyList() : data.values().iterator().next();
+    }
+
+    @Override
+    public @NotNull ID<Integer, List<LoggingCallSite>> getName() {
+        return NAME;
+    }
+
+    @Override
+    public @NotNull SingleEntryIndexer<List<LoggingCallSite>> getIndexer() {
+        return new SingleEntryIndexer<List<LoggingCallSite>>(false) {
+            @Override
+            protected @Nullable List<LoggingCallSite> computeValue(@NotNull FileContent inputData) {
+                if (!LoggerWordFilter.mayContainLoggingCall(inputData.getContentAsText())) {
+                    return null; // no need to build the PSI of files without logging
+                }
+
+                List<LoggingCallSite> callSites = new ArrayList<>();
+                inputData.getPsiFile().accept(new JavaRecursiveElementWalkingVisitor() {
+                    @Override
+                    public void visitMethodCallExpression(@NotNull PsiMethodCallExpression expression) {
+                        // types cannot be resolved while indexing, only the syntax of the call is checked
+                        if (LoggingCallMatcher.isCandidateLoggingCall(expression)) {
+                            PsiReferenceExpression methodExpression = expression.getMethodExpression();
+                            PsiElement nameElement = methodExpression.getReferenceNameElement();
+                            PsiExpression qualifier = methodExpression.getQualifierExpression();
+                            if (nameElement != null && qualifier != null) {
+                                TextRange range = expression.getTextRange();
+                                callSites.add(new LoggingCallSite(range.getStartOffset(), range.getEndOffset(),
+                                        nameElement.getTextRange().getStartOffset(),
+                                        methodExpression.getReferenceName(), qualifier.getText(),
+                                        LoggingStatementRecord.getTemplateHash(expression)));
+                            }
+                        }
+                        super.visitMethodCallExpression(expression);
+                    }
+                });
+                // the visiting order is not the order of the offsets for chained calls (e.g., the outer call
+                // "warn" of x.info(...).warn(...) is visited first), the offsets are delta-encoded in ascending order
+                callSites.sort(Comparator.comparingInt(LoggingCallSite::getStartOffset)
+                        .thenComparingInt(LoggingCallSite::getNameOffset));
+                return callSites.isEmpty() ? null : callSites;
+            }
+        };
+    }
+
+    @Override
+    public @NotNull DataExternalizer<List<LoggingCallSite>> getValueExternalizer() {
+        return new DataExternalizer<List<LoggingCallSite>>() {
+            @Override
+            public void save(@NotNull DataOutput out, List<LoggingCallSite> callSites) throws IOException {
+                DataInputOutputUtil.writeINT(out, callSites.size());
+                int previousOffset = 0;
+                for (LoggingCallSite callSite : callSites) {
+                    // start offsets are sorted by the indexer, store the deltas to keep the entries small;
+                    // the other offsets are relative to the start of their call
+                    DataInputOutputUtil.writeINT(out, callSite.getStartOffset() - previousOffset);
+                    DataInputOutputUtil.writeINT(out, callSite.getEndOffset() - callSite.getStartOffset());
+                    DataInputOutputUtil.writeINT(out, callSite.getNameOffset() - callSite.getStartOffset());
+                    IOUtil.writeUTF(out, callSite.getLevel());
+                    IOUtil.writeUTF(out, callSite.getQualifier());
+                    out.writeInt(callSite.getTemplateHash());
+                    previousOffset = callSite.getStartOffset();
+                }
+            }
+
+            @Override
+            public List<LoggingCallSite> read(@NotNull DataInput in) throws IOException {
+                int size = DataInputOutputUtil.readINT(in);
+                List<LoggingCallSite> callSites = new ArrayList<>(size);
+                int startOffset = 0;
+                for (int i = 0; i < size; i++) {
+                    startOffset += DataInputOutputUtil.readINT(in);
+                    int endOffset = startOffset + DataInputOutputUtil.readINT(in);
+                    int nameOffset = startOffset + DataInputOutputUtil.readINT(in);
+                    String level = IOUtil.readUTF(in);
+                    String qualifier = IOUtil.readUTF(in);
+                    callSites.add(new LoggingCallSite(startOffset, endOffset, nameOffset, level, qualifier,
+                            in.readInt()));
+                }
+                return callSites;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @Override
+    public @NotNull FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+}
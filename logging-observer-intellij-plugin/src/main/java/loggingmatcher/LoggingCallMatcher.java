@@ -0,0 +1,124 @@
+package loggingmatcher;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiUtil;
+import settings.LoggingObserverSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matcher of logging statements.
+ * A logging statement is a call of a logging method (e.g., "info") on a qualifier whose type is one of the
+ * configured logger classes (see {@link LoggingObserverSettings}) or a subclass of one of them, or a static call
+ * of a logging method of one of these classes. When the type of a logger instance cannot be resolved (e.g., a
+ * missing dependency), the call is matched if the qualifier mentions "log" (e.g., LOG, getLogger()).
+ * The verdict of each qualifier class is memoized until the PSI or the settings change.
+ */
+@Service(Service.Level.PROJECT)
+public final class LoggingCallMatcher {
+    private final Project project;
+
+    public LoggingCallMatcher(Project project) {
+        this.project = project;
+    }
+
+    public static LoggingCallMatcher getInstance(Project project) {
+        return project.getService(LoggingCallMatcher.class);
+    }
+
+    public static boolean isLogLevelName(String methodName) {
+        if (methodName == null) {
+            return false;
+        }
+        switch (methodName) {
+            case "trace":
+            case "debug":
+            case "info":
+            case "warn":
+            case "error":
+            case "fatal":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Syntactic check of a call: a qualified call of a logging method.
+     * Nothing is resolved, so it can also be used while indexing.
+     */
+    public static boolean isCandidateLoggingCall(PsiMethodCallExpression methodCall) {
+        PsiReferenceExpression methodExpression = methodCall.getMethodExpression();
+        return isLogLevelName(methodExpression.getReferenceName())
+                && methodExpression.getQualifierExpression() != null;
+    }
+
+    public boolean isLoggingCall(PsiMethodCallExpression methodCall) {
+        if (!isCandidateLoggingCall(methodCall)) {
+            return false;
+        }
+
+        PsiExpression qualifier = methodCall.getMethodExpression().getQualifierExpression();
+        PsiElement resolvedQualifier = qualifier instanceof PsiReferenceExpression
+                ? ((PsiReferenceExpression) qualifier).resolve() : null;
+        if (resolvedQualifier instanceof PsiClass) {
+            return isLoggerClass((PsiClass) resolvedQualifier); // static call (e.g., a static logging facade)
+        }
+
+        PsiClass qualifierClass = PsiUtil.resolveClassInType(qualifier.getType());
+        if (qualifierClass == null || qualifierClass.getQualifiedName() == null) {
+            // type of the logger instance cannot be resolved (e.g., missing dependency), fall back to its name;
+            // an unresolved class name (e.g., Catalog.info(...)) is not taken for a logger
+            return !isUnresolvedClassName(qualifier, resolvedQualifier)
+                    && StringUtil.containsIgnoreCase(qualifier.getText(), "log");
+        }
+        return isLoggerClass(qualifierClass);
+    }
+
+    /**
+     * Whether an unresolved qualifier is named like a class (e.g., "Blog"), unlike a variable ("log")
+     * or a constant ("LOG")
+     */
+    private static boolean isUnresolvedClassName(PsiExpression qualifier, PsiElement resolvedQualifier) {
+        if (resolvedQualifier != null || !(qualifier instanceof PsiReferenceExpression)) {
+            return false;
+        }
+        String name = ((PsiReferenceExpression) qualifier).getReferenceName();
+        return name != null && !name.isEmpty() && Character.isUpperCase(name.charAt(0))
+                && !name.equals(StringUtil.toUpperCase(name));
+    }
+
+    /**
+     * Whether the class is one of the configured logger classes or inherits from one of them
+     */
+    public boolean isLoggerClass(PsiClass psiClass) {
+        String qualifiedName = psiClass.getQualifiedName();
+        if (qualifiedName == null) {
+            return false;
+        }
+
+        Map<String, Boolean> verdicts = CachedValuesManager.getManager(project).getCachedValue(project,
+                () -> CachedValueProvider.Result.<Map<String, Boolean>>create(new ConcurrentHashMap<>(),
+                        PsiModificationTracker.getInstance(project), LoggingObserverSettings.getInstance()));
+
+        return verdicts.computeIfAbsent(qualifiedName, name -> inheritsLoggerClass(psiClass));
+    }
+
+    private static boolean inheritsLoggerClass(PsiClass psiClass) {
+        for (String loggerClass : LoggingObserverSettings.getInstance().getLoggerClasses()) {
+            if (loggerClass.equals(psiClass.getQualifiedName())
+                    || InheritanceUtil.isInheritor(psiClass, true, loggerClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+package scanengine;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import loggingmatcher.LoggingCallMatcher;
+import org.jetbrains.annotations.NotNull;
+import settings.LoggingObserverSettings;
+
+import java.util.*;
+
+/**
+ * Logging-related facts of a Java file, collected in a single traversal of the file's PSI tree:
+ * logging statements, catch sections, the logging statements inside each catch section and method call counts.
+ * The facts are cached on the file until the PSI (which logging statements resolve to) or the settings change,
+ * so different actions do not walk the same file twice.
+ */
+public class JavaFileFacts {
+
+    private final List<PsiMethodCallExpression> loggingStatements = new ArrayList<>();
+    private final List<PsiCatchSection> catchSections = new ArrayList<>();
+    private final List<PsiMethodCallExpression> loggingStatementsInCatchSections = new ArrayList<>();
+    private final Map<PsiCatchSection, List<PsiMethodCallExpression>> loggingStatementsPerCatchSection = new HashMap<>();
+    private final Map<PsiMethod, Integer> numMethodCallsPerMethod = new HashMap<>();
+
+    private JavaFileFacts() {}
+
+    public static JavaFileFacts of(@NotNull PsiFile file) {
+        return CachedValuesManager.getCachedValue(file,
+                () -> CachedValueProvider.Result.create(collect(file),
+                        PsiModificationTracker.getInstance(file.getProject()), LoggingObserverSettings.getInstance()));
+    }
+
+    public List<PsiMethodCallExpression> getLoggingStatements() { return this.loggingStatements; }
+    public List<PsiCatchSection> getCatchSections() { return this.catchSections; }
+    public List<PsiMethodCallExpression> getLoggingStatementsInCatchSections() { return this.loggingStatementsInCatchSections; }
+
+    /**
+     * Logging statements anywhere inside the catch section (including nested catch sections)
+     */
+    public List<PsiMethodCallExpression> getLoggingStatementsInCatchSection(PsiCatchSection catchSection) {
+        return this.loggingStatementsPerCatchSection.getOrDefault(catchSection, Collections.emptyList());
+    }
+
+    /**
+     * Number of method calls anywhere inside the method (including lambdas and local classes)
+     */
+    public int getNumMethodCallsInMethod(PsiMethod method) {
+        return this.numMethodCallsPerMethod.getOrDefault(method, 0);
+    }
+
+    private static JavaFileFacts collect(PsiFile file) {
+        JavaFileFacts facts = new JavaFileFacts();
+        file.accept(new FactsCollector(facts, LoggingCallMatcher.getInstance(file.getProject())));
+
+        return facts;
+    }
+
+    private static class FactsCollector extends JavaRecursiveElementWalkingVisitor {
+        private final JavaFileFacts facts;
+        private final LoggingCallMatcher loggingCallMatcher;
+        // catch sections and methods enclosing the currently visited element
+        private final Deque<PsiCatchSection> openCatchSections = new ArrayDeque<>();
+        private final Deque<PsiMethod> openMethods = new ArrayDeque<>();
+
+        FactsCollector(JavaFileFacts facts, LoggingCallMatcher loggingCallMatcher) {
+            this.facts = facts;
+            this.loggingCallMatcher = loggingCallMatcher;
+        }
+
+        @Override
+        public void visitCatchSection(@NotNull PsiCatchSection section) {
+            facts.catchSections.add(section);
+            openCatchSections.push(section);
+            super.visitCatchSection(section);
+        }
+
+        @Override
+        public void visitMethod(@NotNull PsiMethod method) {
+            openMethods.push(method);
+            super.visitMethod(method);
+        }
+
+        @Override
+        public void visitMethodCallExpression(@NotNull PsiMethodCallExpression expression) {
+            for (PsiMethod method : openMethods) {
+                facts.numMethodCallsPerMethod.merge(method, 1, Integer::sum);
+            }
+
+            if (loggingCallMatcher.isLoggingCall(expression)) {
+                facts.loggingStatements.add(expression);
+                if (!openCatchSections.isEmpty()) {
+                    facts.loggingStatementsInCatchSections.add(expression);
+                    for (PsiCatchSection catchSection : openCatchSections) {
+                        facts.loggingStatementsPerCatchSection
+                                .computeIfAbsent(catchSection, c -> new ArrayList<>()).add(expression);
+                    }
+                }
+            }
+            super.visitMethodCallExpression(expression);
+        }
+
+        @Override
+        protected void elementFinished(PsiElement element) {
+            if (element instanceof PsiCatchSection) {
+                openCatchSections.pop();
+            } else if (element instanceof PsiMethod) {
+                openMethods.pop();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package scanengine;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.psi.search.UsageSearchContext;
+import settings.LoggingObserverSettings;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Prefilter based on the platform's word index (IdIndex): files that do not mention a logger are dropped
+ * before any PSI is loaded.
+ * A file is kept if its code contains a logging method name (e.g., "info") and a logger-related identifier
+ * (e.g., "LOG", "logger", "LoggerFactory", or the simple name of a configured logger class such as "Category");
+ * words are matched case-insensitively.
+ * Files that only use an inherited logger field with a compound name (e.g., "auditLog") are not kept.
+ */
+public class LoggerWordFilter {
+    private static final Logger logger = Logger.getInstance(LoggerWordFilter.class);
+
+    // names of the logging methods
+    private static final String[] LOG_LEVEL_WORDS = {"trace", "debug", "info", "warn", "error", "fatal"};
+
+    // names of logger fields and logger factories, the simple names of the configured logger classes are added
+    private static final String[] LOGGER_WORDS = {"log", "logger", "logging", "logs",
+            "LoggerFactory", "LogFactory", "LogManager", "getLogger", "getLog"};
+
+    /**
+     * Keep the files whose code mentions both a logging method name and a logger-related identifier.
+     * The order of the given files is preserved.
+     */
+    public static List<VirtualFile> retainFilesMentioningLoggers(Project project, List<VirtualFile> files) {
+        List<VirtualFile> candidateFiles = ProjectScanner.computeInReadAction(project, () -> {
+            GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+            Set<VirtualFile> filesWithLogLevels = findFilesWithAnyWord(project, scope, LOG_LEVEL_WORDS);
+            Set<VirtualFile> filesWithLoggers = findFilesWithAnyWord(project, scope, getLoggerWords());
+
+            return files.stream()
+                    .filter(file -> filesWithLogLevels.contains(file) && filesWithLoggers.contains(file))
+                    .collect(Collectors.toList());
+        });
+
+        logger.info("Word index prefilter kept " + candidateFiles.size() + " of " + files.size() + " files");
+
+        return candidateFiles;
+    }
+
+    /**
+     * Cheap text check for a file content that has not been indexed yet: a file with logging statements
+     * mentions a logging method name. The logger classes are not checked, the index does not depend on the settings.
+     */
+    public static boolean mayContainLoggingCall(CharSequence text) {
+        for (String logLevelWord : LOG_LEVEL_WORDS) {
+            if (StringUtil.contains(text, logLevelWord)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] getLoggerWords() {
+        Set<String> words = new LinkedHashSet<>(Arrays.asList(LOGGER_WORDS));
+        for (String loggerClass : LoggingObserverSettings.getInstance().getLoggerClasses()) {
+            // e.g., "Category" for org.apache.log4j.Category, the type of the logger fields and variables
+            words.add(StringUtil.getShortName(loggerClass.replace('$', '.')));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private static Set<VirtualFile> findFilesWithAnyWord(Project project, GlobalSearchScope scope, String[] words) {
+        Set<VirtualFile> files = new HashSet<>();
+        PsiSearchHelper searchHelper = PsiSearchHelper.getInstance(project);
+        for (String word : words) {
+            searchHelper.processCandidateFilesForText(scope, UsageSearchContext.IN_CODE, false, word, file -> {
+                files.add(file);
+                return true;
+            });
+        }
+        return files;
+    }
+}
@@ -0,0 +1,67 @@
+package scanengine;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiMethodCallExpression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable record of a logging statement, detached from the PSI so that the PSI trees of the scanned files
+ * can be garbage-collected during large scans. The statement is located again through its file and offsets.
+ */
+public final class LoggingStatementRecord {
+    private final VirtualFile file;
+    private final int startOffset;
+    private final int endOffset;
+    private final String level;
+    // hash of the text of the log template (the first argument), 0 if the call has no argument
+    private final int templateHash;
+    // the columns of the analysis row of the logging statement, null if it has not been analyzed
+    private final String[] columns;
+
+    public LoggingStatementRecord(@NotNull VirtualFile file, int startOffset, int endOffset,
+                                  String level, int templateHash, @Nullable String[] columns) {
+        this.file = file;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.level = level;
+        this.templateHash = templateHash;
+        this.columns = columns;
+    }
+
+    /**
+     * Record a logging statement of a physical file. Must be called in a read action.
+     */
+    public static LoggingStatementRecord of(PsiMethodCallExpression logStmt, @Nullable String[] columns) {
+        TextRange range = logStmt.getTextRange();
+        return new LoggingStatementRecord(logStmt.getContainingFile().getVirtualFile(),
+                range.getStartOffset(), range.getEndOffset(),
+                String.valueOf(logStmt.getMethodExpression().getReferenceName()),
+                getTemplateHash(logStmt),
+                columns);
+    }
+
+    /**
+     * Hash of the text of the log template of a logging statement, as recorded by the logging call site index
+     */
+    public static int getTemplateHash(PsiMethodCallExpression logStmt) {
+        PsiExpression[] arguments = logStmt.getArgumentList().getExpressions();
+        return arguments.length == 0 ? 0 : arguments[0].getText().hashCode();
+    }
+
+    public static LoggingStatementRecord of(PsiMethodCallExpression logStmt) {
+        return of(logStmt, (String[]) null);
+    }
+
+    public VirtualFile getFile() { return this.file; }
+    public int getStartOffset() { return this.startOffset; }
+    public int getEndOffset() { return this.endOffset; }
+    public String getLevel() { return this.level; }
+    public int getTemplateHash() { return this.templateHash; }
+    /**
+     * The columns of the analysis row, not to be modified; null if the logging statement has not been analyzed
+     */
+    @Nullable public String[] getColumns() { return this.columns; }
+}
@@ -0,0 +1,150 @@
+package scanengine;
+
+import com.intellij.concurrency.JobLauncher;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileTypes.FileTypeRegistry;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Background scan engine shared by the search actions.
+ * Files are distributed over the platform's worker pool (one worker per core) and each file is processed
+ * in a non-blocking read action, which is cancelled and restarted when a write action comes in.
+ * Must be called from a background thread, e.g., from a {@link com.intellij.openapi.progress.Task.Backgroundable}.
+ */
+public class ProjectScanner {
+    private static final Logger logger = Logger.getInstance(ProjectScanner.class);
+
+    /**
+     * Collect the Java source files of a project, excluding test files (see {@link SourceFileExclusions}).
+     * Only the project file index is consulted, no PSI is built here.
+     */
+    public static List<VirtualFile> collectJavaSourceFiles(Project project) {
+        return computeInReadAction(project, () -> {
+            List<VirtualFile> files = new ArrayList<>();
+
+            ProjectFileIndex projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
+            SourceFileExclusions exclusions = new SourceFileExclusions(project);
+            projectFileIndex.iterateContent(fileOrDir -> {
+                ProgressManager.checkCanceled();
+                if (!fileOrDir.isDirectory() && projectFileIndex.isUnderSourceRootOfType(fileOrDir,
+                        JavaModuleSourceRootTypes.SOURCES)) {
+                    if (!FileTypeRegistry.getInstance().isFileOfType(fileOrDir, JavaFileType.INSTANCE)) {
+                        return true; // skip non-Java files
+                    }
+                    if (exclusions.isExcludedFile(fileOrDir)) {
+                        return true; // skip test files
+                    }
+                    files.add(fileOrDir);
+                }
+                return true;
+            }, fileOrDir -> !fileOrDir.isDirectory() || !exclusions.isExcludedDirectory(fileOrDir)); // skip test roots
+
+            return files;
+        });
+    }
+
+    /**
+     * Apply a processor to each file in parallel and merge the per-file results in the order of the given files.
+     * @param fileProcessor called inside a read action, may be restarted if a write action interrupts it
+     */
+    public static <T> List<T> scanFiles(Project project, List<VirtualFile> files, ProgressIndicator indicator,
+                                        Function<PsiJavaFile, List<T>> fileProcessor) {
+        return scanFiles(project, files, indicator, fileProcessor, fileResults -> {});
+    }
+
+    /**
+     * Apply a processor to each file in parallel and merge the per-file results in the order of the given files.
+     * @param fileProcessor called inside a read action, may be restarted if a write action interrupts it
+     * @param fileResultsConsumer receives the results of each file as soon as the file and all the files before
+     *                            it are processed, so in the order of the files; called from the worker
+     *                            threads, one file at a time
+     */
+    public static <T> List<T> scanFiles(Project project, List<VirtualFile> files, ProgressIndicator indicator,
+                                        Function<PsiJavaFile, List<T>> fileProcessor,
+                                        Consumer<List<T>> fileResultsConsumer) {
+        List<List<T>> resultsPerFile =
+                Collections.synchronizedList(new ArrayList<>(Collections.nCopies(files.size(), null)));
+        AtomicInteger nextFileToConsume = new AtomicInteger();
+        AtomicInteger processedFiles = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+
+        indicator.setIndeterminate(false);
+        indicator.setFraction(0);
+
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(IntStream.range(0, files.size()).boxed()
+                .collect(Collectors.toList()), indicator, i -> {
+            VirtualFile file = files.get(i);
+            List<T> fileResults = computeInReadAction(project, () -> processFile(project, file, fileProcessor));
+            resultsPerFile.set(i, fileResults);
+            // the results of the files processed in a row from the first one are passed to the consumer
+            synchronized (resultsPerFile) {
+                while (nextFileToConsume.get() < files.size() && resultsPerFile.get(nextFileToConsume.get()) != null) {
+                    List<T> consumedResults = resultsPerFile.get(nextFileToConsume.getAndIncrement());
+                    if (!consumedResults.isEmpty()) {
+                        fileResultsConsumer.accept(consumedResults);
+                    }
+                }
+            }
+
+            indicator.setFraction((double) processedFiles.incrementAndGet() / files.size());
+            indicator.setText2(file.getPresentableUrl());
+            return true;
+        });
+        indicator.setText2("");
+
+        List<T> results = new ArrayList<>();
+        for (List<T> fileResults : resultsPerFile) {
+            if (fileResults != null) {
+                results.addAll(fileResults);
+            }
+        }
+
+        logger.info("Scanned " + files.size() + " files in " + (System.currentTimeMillis() - startTime) +
+                " ms using " + Runtime.getRuntime().availableProcessors() + " cores");
+
+        return results;
+    }
+
+    /**
+     * Run a computation in a non-blocking read action on the current (background) thread.
+     * The computation is restarted if a write action is requested while it is running.
+     */
+    public static <T> T computeInReadAction(Project project, Callable<T> computation) {
+        return ReadAction.nonBlocking(computation)
+                .inSmartMode(project)
+                .executeSynchronously();
+    }
+
+    private static <T> List<T> processFile(Project project, VirtualFile file,
+                                           Function<PsiJavaFile, List<T>> fileProcessor) {
+        if (!file.isValid()) {
+            return Collections.emptyList();
+        }
+        PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+        if (!(psiFile instanceof PsiJavaFile)) {
+            return Collections.emptyList(); // skip non-Java files
+        }
+        return fileProcessor.apply((PsiJavaFile) psiFile);
+    }
+}
@@ -0,0 +1,101 @@
+package scanengine;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.TestSourcesFilter;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.jps.model.java.JavaModuleSourceRootTypes;
+import settings.LoggingObserverSettings;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which files are excluded from the scans: the test sources (by the type of their source root or
+ * by {@link TestSourcesFilter}) and the files and directories matching the exclusion globs of the settings
+ * (e.g., "**&#47;*Test.java", "**&#47;src/test/**"). The globs are matched against the paths relative to the
+ * content root, so the directories above the project (e.g., a checkout under "~/src/test") never match.
+ * The verdict of each directory is computed once and cached, so an excluded directory is skipped as a whole.
+ * Not thread-safe, create one instance per scan and use it in a read action.
+ */
+public class SourceFileExclusions {
+    private static final Logger logger = Logger.getInstance(SourceFileExclusions.class);
+
+    private final Project project;
+    private final ProjectFileIndex fileIndex;
+    private final List<PathMatcher> excludedPathMatchers = new ArrayList<>();
+    private final Map<VirtualFile, Boolean> excludedDirectories = new HashMap<>();
+
+    public SourceFileExclusions(Project project) {
+        this.project = project;
+        this.fileIndex = ProjectFileIndex.getInstance(project);
+
+        FileSystem fileSystem = FileSystems.getDefault();
+        for (String glob : LoggingObserverSettings.getInstance().getExcludedPathGlobs()) {
+            try {
+                excludedPathMatchers.add(fileSystem.getPathMatcher("glob:" + glob));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring the invalid exclusion glob " + glob, e);
+            }
+        }
+    }
+
+    /**
+     * Whether a directory and all its content are excluded
+     */
+    public boolean isExcludedDirectory(VirtualFile dir) {
+        Boolean excluded = excludedDirectories.get(dir);
+        if (excluded == null) {
+            VirtualFile parent = dir.getParent();
+            excluded = (parent != null && fileIndex.isInContent(parent) && isExcludedDirectory(parent))
+                    || fileIndex.isUnderSourceRootOfType(dir, JavaModuleSourceRootTypes.TESTS)
+                    || TestSourcesFilter.isTestSources(dir, project)
+                    || matchesExcludedPath(dir);
+            excludedDirectories.put(dir, excluded);
+        }
+        return excluded;
+    }
+
+    public boolean isExcludedFile(VirtualFile file) {
+        VirtualFile parent = file.getParent();
+        return (parent != null && isExcludedDirectory(parent)) || matchesExcludedPath(file);
+    }
+
+    private boolean matchesExcludedPath(VirtualFile fileOrDir) {
+        if (excludedPathMatchers.isEmpty()) {
+            return false;
+        }
+
+        VirtualFile contentRoot = fileIndex.getContentRootForFile(fileOrDir);
+        String relativePath = contentRoot == null ? null : VfsUtilCore.getRelativePath(fileOrDir, contentRoot);
+        if (relativePath == null) {
+            return false; // not in the project content, not scanned
+        }
+
+        // matched with a leading slash as well, so "**/" globs match at the content root (e.g., "src/test/A.java")
+        Path path;
+        Path rootedPath;
+        try {
+            path = Paths.get(relativePath);
+            rootedPath = Paths.get("/" + relativePath);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+        for (PathMatcher matcher : excludedPathMatchers) {
+            if (matcher.matches(path) || matcher.matches(rootedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,150 @@
+package settings;
+
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.ui.TextFieldWithBrowseButton;
+import com.intellij.ui.CheckBoxList;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.ui.FormBuilder;
+import exceptionloggingmetrics.LoggingMetric;
+import exceptionloggingmetrics.LoggingMetricRegistry;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Settings page of the plugin under Settings | Tools | Logging Observer
+ */
+public class LoggingObserverConfigurable implements Configurable {
+    private JBTextArea loggerClassesArea;
+    private JBTextArea excludedPathGlobsArea;
+    private TextFieldWithBrowseButton exportDirectoryField;
+    private JBCheckBox gzipExportCheckBox;
+    private JBCheckBox exportTemplateIdsCheckBox;
+    private JBIntSpinner findWindowPageSizeSpinner;
+    private CheckBoxList<String> metricsList;
+    private JBIntSpinner exceptionOriginDepthSpinner;
+
+    @Override
+    public String getDisplayName() {
+        return "Logging Observer";
+    }
+
+    @Override
+    public @Nullable JComponent createComponent() {
+        loggerClassesArea = new JBTextArea(8, 50);
+        excludedPathGlobsArea = new JBTextArea(5, 50);
+        exportDirectoryField = new TextFieldWithBrowseButton();
+        exportDirectoryField.addBrowseFolderListener(null, FileChooserDescriptorFactory.createSingleFolderDescriptor());
+        gzipExportCheckBox = new JBCheckBox("Compress the exported results (gzip)");
+        exportTemplateIdsCheckBox = new JBCheckBox(
+                "Export the log strings of the logging components as template IDs, with a template dictionary file");
+        findWindowPageSizeSpinner = new JBIntSpinner(1000, 10, 1000000, 100);
+        exceptionOriginDepthSpinner = new JBIntSpinner(3, 0, 10);
+        metricsList = new CheckBoxList<>();
+        for (LoggingMetric metric : LoggingMetricRegistry.getAllMetrics()) {
+            metricsList.addItem(metric.getName(),
+                    metric.getName() + " (" + metric.getCost().name().toLowerCase() + ") - " + metric.getDescription(),
+                    true);
+        }
+
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("Logger classes (one qualified name per line, subclasses included):",
+                        new JBScrollPane(loggerClassesArea), true)
+                .addLabeledComponent("Excluded files and directories (one glob per line, e.g., **/src/test/**):",
+                        new JBScrollPane(excludedPathGlobsArea), true)
+                .addLabeledComponent("Export directory (empty for the IDE log directory):", exportDirectoryField, true)
+                .addComponent(gzipExportCheckBox)
+                .addComponent(exportTemplateIdsCheckBox)
+                .addLabeledComponent("Search results shown in the Find tool window at a time:",
+                        findWindowPageSizeSpinner)
+                .addLabeledComponent("Calls followed to find where a caught exception is thrown (0 for throws lists only):",
+                        exceptionOriginDepthSpinner)
+                .addLabeledComponent("Exception logging metrics (cost: syntactic < resolve < project_search):",
+                        new JBScrollPane(metricsList), true)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        LoggingObserverSettings settings = LoggingObserverSettings.getInstance();
+        return !getLines(loggerClassesArea).equals(settings.getLoggerClasses())
+                || !getLines(excludedPathGlobsArea).equals(settings.getExcludedPathGlobs())
+                || !exportDirectoryField.getText().trim().equals(settings.getExportDirectory())
+                || gzipExportCheckBox.isSelected() != settings.isGzipExport()
+                || exportTemplateIdsCheckBox.isSelected() != settings.isExportTemplateIds()
+                || findWindowPageSizeSpinner.getNumber() != settings.getFindWindowPageSize()
+                || exceptionOriginDepthSpinner.getNumber() != settings.getExceptionOriginDepth()
+                || !getDisabledMetrics().equals(settings.getDisabledMetrics());
+    }
+
+    @Override
+    public void apply() {
+        LoggingObserverSettings settings = LoggingObserverSettings.getInstance();
+        settings.setLoggerClasses(getLines(loggerClassesArea));
+        settings.setExcludedPathGlobs(getLines(excludedPathGlobsArea));
+        settings.setExportDirectory(exportDirectoryField.getText().trim());
+        settings.setGzipExport(gzipExportCheckBox.isSelected());
+        settings.setExportTemplateIds(exportTemplateIdsCheckBox.isSelected());
+        settings.setFindWindowPageSize(findWindowPageSizeSpinner.getNumber());
+        if (exceptionOriginDepthSpinner.getNumber() != settings.getExceptionOriginDepth()) {
+            settings.setExceptionOriginDepth(exceptionOriginDepthSpinner.getNumber());
+        }
+        if (!getDisabledMetrics().equals(settings.getDisabledMetrics())) {
+            settings.setDisabledMetrics(getDisabledMetrics());
+        }
+    }
+
+    @Override
+    public void reset() {
+        LoggingObserverSettings settings = LoggingObserverSettings.getInstance();
+        loggerClassesArea.setText(String.join("\n", settings.getLoggerClasses()));
+        excludedPathGlobsArea.setText(String.join("\n", settings.getExcludedPathGlobs()));
+        exportDirectoryField.setText(settings.getExportDirectory());
+        gzipExportCheckBox.setSelected(settings.isGzipExport());
+        exportTemplateIdsCheckBox.setSelected(settings.isExportTemplateIds());
+        findWindowPageSizeSpinner.setNumber(settings.getFindWindowPageSize());
+        exceptionOriginDepthSpinner.setNumber(settings.getExceptionOriginDepth());
+        for (LoggingMetric metric : LoggingMetricRegistry.getAllMetrics()) {
+            metricsList.setItemSelected(metric.getName(), !settings.getDisabledMetrics().contains(metric.getName()));
+        }
+        metricsList.repaint();
+    }
+
+    @Override
+    public void disposeUIResources() {
+        loggerClassesArea = null;
+        excludedPathGlobsArea = null;
+        exportDirectoryField = null;
+        gzipExportCheckBox = null;
+        exportTemplateIdsCheckBox = null;
+        findWindowPageSizeSpinner = null;
+        exceptionOriginDepthSpinner = null;
+        metricsList = null;
+    }
+
+    private List<String> getDisabledMetrics() {
+        List<String> disabledMetrics = new ArrayList<>();
+        for (LoggingMetric metric : LoggingMetricRegistry.getAllMetrics()) {
+            if (!metricsList.isItemSelected(metric.getName())) {
+                disabledMetrics.add(metric.getName());
+            }
+        }
+        return disabledMetrics;
+    }
+
+    private static List<String> getLines(JBTextArea textArea) {
+        return Arrays.stream(textArea.getText().split("\n"))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
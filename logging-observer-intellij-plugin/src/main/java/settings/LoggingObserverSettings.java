@@ -0,0 +1,131 @@
+package settings;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Application-level settings of the plugin, stored in loggingObserver.xml and edited under
+ * Settings | Tools | Logging Observer.
+ */
+@Service(Service.Level.APP)
+@State(name = "LoggingObserverSettings", storages = @Storage("loggingObserver.xml"))
+public final class LoggingObserverSettings implements PersistentStateComponent<LoggingObserverSettings.State>,
+        ModificationTracker {
+
+    public static final List<String> DEFAULT_LOGGER_CLASSES = Arrays.asList(
+            "org.slf4j.Logger",
+            "org.apache.logging.log4j.Logger",
+            "org.apache.log4j.Category",
+            "org.apache.commons.logging.Log",
+            "java.util.logging.Logger",
+            "org.jboss.logging.BasicLogger",
+            "com.intellij.openapi.diagnostic.Logger");
+
+    public static final List<String> DEFAULT_EXCLUDED_PATH_GLOBS = Arrays.asList(
+            "**/*Test.java",
+            "**/*Tests.java",
+            "**/src/test/**");
+
+    public static final List<String> DEFAULT_DISABLED_METRICS = Collections.emptyList();
+
+    public static class State {
+        // qualified names of the logger classes, subclasses are matched as well
+        public List<String> loggerClasses = new ArrayList<>(DEFAULT_LOGGER_CLASSES);
+        // directory of the exported results, a folder in the IDE log directory if empty
+        public String exportDirectory = "";
+        public boolean gzipExport = false;
+        // the logging components reference their log strings by template ID, with a separate template dictionary
+        public boolean exportTemplateIds = false;
+        // number of search results added to the find tool window at a time
+        public int findWindowPageSize = 1000;
+        // globs of the files and directories excluded from the scans, in addition to the test source roots
+        public List<String> excludedPathGlobs = new ArrayList<>(DEFAULT_EXCLUDED_PATH_GLOBS);
+        // names of the exception logging metrics that are neither computed nor exported
+        public List<String> disabledMetrics = new ArrayList<>(DEFAULT_DISABLED_METRICS);
+        // number of calls followed from a try block to find where its exceptions are thrown, 0 for the throws lists only
+        public int exceptionOriginDepth = 3;
+    }
+
+    private State state = new State();
+    private volatile long modificationCount = 0;
+
+    public static LoggingObserverSettings getInstance() {
+        return ApplicationManager.getApplication().getService(LoggingObserverSettings.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return this.state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        XmlSerializerUtil.copyBean(state, this.state);
+        this.modificationCount++;
+    }
+
+    /**
+     * Incremented when a setting the analysis results depend on is changed
+     */
+    @Override
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
+    public List<String> getLoggerClasses() { return this.state.loggerClasses; }
+
+    public void setLoggerClasses(List<String> loggerClasses) {
+        this.state.loggerClasses = new ArrayList<>(loggerClasses);
+        this.modificationCount++;
+    }
+
+    public String getExportDirectory() { return this.state.exportDirectory; }
+    public void setExportDirectory(String exportDirectory) { this.state.exportDirectory = exportDirectory; }
+
+    public Path getExportPath() {
+        String exportDirectory = this.state.exportDirectory.trim();
+        return exportDirectory.isEmpty()
+                ? Paths.get(PathManager.getLogPath(), "logging-observer")
+                : Paths.get(exportDirectory);
+    }
+
+    public boolean isGzipExport() { return this.state.gzipExport; }
+    public void setGzipExport(boolean gzipExport) { this.state.gzipExport = gzipExport; }
+
+    public boolean isExportTemplateIds() { return this.state.exportTemplateIds; }
+    public void setExportTemplateIds(boolean exportTemplateIds) { this.state.exportTemplateIds = exportTemplateIds; }
+
+    public int getFindWindowPageSize() { return this.state.findWindowPageSize; }
+    public void setFindWindowPageSize(int findWindowPageSize) { this.state.findWindowPageSize = findWindowPageSize; }
+
+    public List<String> getExcludedPathGlobs() { return this.state.excludedPathGlobs; }
+
+    public void setExcludedPathGlobs(List<String> excludedPathGlobs) {
+        this.state.excludedPathGlobs = new ArrayList<>(excludedPathGlobs);
+    }
+
+    public List<String> getDisabledMetrics() { return this.state.disabledMetrics; }
+
+    public void setDisabledMetrics(List<String> disabledMetrics) {
+        this.state.disabledMetrics = new ArrayList<>(disabledMetrics);
+        this.modificationCount++;
+    }
+
+    public int getExceptionOriginDepth() { return this.state.exceptionOriginDepth; }
+
+    public void setExceptionOriginDepth(int exceptionOriginDepth) {
+        this.state.exceptionOriginDepth = exceptionOriginDepth;
+        this.modificationCount++;
+    }
+}
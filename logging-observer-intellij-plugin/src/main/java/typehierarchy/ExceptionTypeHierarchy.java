@@ -0,0 +1,156 @@
+package typehierarchy;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import exceptionloggingmetrics.ExceptionCategory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type hierarchy of the project for the exception analyses.
+ * Each class gets an id, and the ids of all its ancestors are memoized in a bit set, so that subtype checks
+ * and the classification of exceptions (checked, runtime, error) are bit lookups instead of walks over
+ * the super types. Classes are identified by their qualified names, so a type matches its ancestors whether
+ * or not they resolve: an unresolved super type is kept by name (its ancestors are unknown).
+ * The hierarchy is discarded when the Java structure or the project roots change.
+ */
+@Service(Service.Level.PROJECT)
+public final class ExceptionTypeHierarchy {
+    private static final String THROWABLE = "java.lang.Throwable";
+    private static final String EXCEPTION = "java.lang.Exception";
+    private static final String RUNTIME_EXCEPTION = "java.lang.RuntimeException";
+    private static final String ERROR = "java.lang.Error";
+
+    private final Project project;
+
+    public ExceptionTypeHierarchy(Project project) {
+        this.project = project;
+    }
+
+    public static ExceptionTypeHierarchy getInstance(Project project) {
+        return project.getService(ExceptionTypeHierarchy.class);
+    }
+
+    /**
+     * Whether a type is a subtype of another type
+     * @param strict true -> returns false for the same type; false -> returns true for the same type.
+     */
+    public boolean isSubType(@NotNull PsiType child, @NotNull PsiType parent, boolean strict) {
+        return isSubType(child, getTypeName(parent), strict);
+    }
+
+    public boolean isThrowable(@NotNull PsiType type) {
+        return isSubType(type, THROWABLE, false);
+    }
+
+    public ExceptionCategory getExceptionCategory(@NotNull PsiType type) {
+        if (isSubType(type, RUNTIME_EXCEPTION, false)) {
+            return ExceptionCategory.RUNTIME;
+        } else if (isSubType(type, ERROR, false)) {
+            return ExceptionCategory.ERROR;
+        } else if (isSubType(type, EXCEPTION, true)) {
+            return ExceptionCategory.CHECKED;
+        } else {
+            return ExceptionCategory.GENERAL;
+        }
+    }
+
+    private boolean isSubType(PsiType child, String parentName, boolean strict) {
+        if (getTypeName(child).equals(parentName)) {
+            return !strict;
+        }
+
+        PsiClass childClass = child instanceof PsiClassType ? ((PsiClassType) child).resolve() : null;
+        if (childClass == null) {
+            return false; // the super types of an unresolved type are unknown
+        }
+
+        Hierarchy hierarchy = getHierarchy();
+        BitSet ancestors = hierarchy.getAncestors(childClass, new HashSet<>());
+        Integer parentId = hierarchy.classIds.get(parentName);
+        return parentId != null && ancestors.get(parentId);
+    }
+
+    private Hierarchy getHierarchy() {
+        return CachedValuesManager.getManager(project).getCachedValue(project,
+                () -> CachedValueProvider.Result.create(new Hierarchy(),
+                        PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE),
+                        ProjectRootManager.getInstance(project)));
+    }
+
+    /**
+     * Qualified name of the class of a type (without type arguments), or its text if it is not a class type
+     */
+    private static String getTypeName(PsiType type) {
+        if (type instanceof PsiClassType) {
+            PsiClass psiClass = ((PsiClassType) type).resolve();
+            if (psiClass != null && psiClass.getQualifiedName() != null) {
+                return psiClass.getQualifiedName();
+            }
+            return ((PsiClassType) type).rawType().getCanonicalText();
+        }
+        return type.getCanonicalText();
+    }
+
+    private static class Hierarchy {
+        // qualified class name -> id of the class in the ancestor bit sets
+        private final Map<String, Integer> classIds = new ConcurrentHashMap<>();
+        // class -> ids of the class and of all its ancestors
+        private final Map<PsiClass, BitSet> ancestorsPerClass = new ConcurrentHashMap<>();
+
+        BitSet getAncestors(PsiClass psiClass, Set<PsiClass> visiting) {
+            BitSet ancestors = ancestorsPerClass.get(psiClass);
+            if (ancestors != null) {
+                return ancestors;
+            }
+            ancestors = new BitSet();
+            if (!visiting.add(psiClass)) {
+                return ancestors; // cyclic inheritance in invalid code
+            }
+
+            Integer id = getClassId(psiClass);
+            if (id != null) {
+                ancestors.set(id);
+            }
+            for (PsiClassType superType : psiClass.getSuperTypes()) {
+                PsiClass superClass = superType.resolve();
+                if (superClass != null) {
+                    ancestors.or(getAncestors(superClass, visiting));
+                } else {
+                    ancestors.set(getClassId(getTypeName(superType))); // e.g., a class of a missing dependency
+                }
+            }
+
+            // bit sets are not modified once they are published
+            BitSet existing = ancestorsPerClass.putIfAbsent(psiClass, ancestors);
+            return existing != null ? existing : ancestors;
+        }
+
+        @Nullable
+        private Integer getClassId(PsiClass psiClass) {
+            String qualifiedName = psiClass.getQualifiedName();
+            if (qualifiedName == null) {
+                return null; // anonymous and local classes cannot be referred to as a parent type
+            }
+            return getClassId(qualifiedName);
+        }
+
+        private int getClassId(String className) {
+            synchronized (classIds) {
+                return classIds.computeIfAbsent(className, name -> classIds.size());
+            }
+        }
+    }
+}